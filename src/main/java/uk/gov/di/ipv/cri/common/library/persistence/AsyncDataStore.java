@@ -0,0 +1,125 @@
+package uk.gov.di.ipv.cri.common.library.persistence;
+
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncIndex;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class AsyncDataStore<T> {
+
+    private final DynamoDbAsyncTable<T> table;
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    public AsyncDataStore(
+            String tableName,
+            Class<T> typeParameterClass,
+            DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient) {
+        this(tableName, TableSchema.fromBean(typeParameterClass), dynamoDbEnhancedAsyncClient);
+    }
+
+    public AsyncDataStore(
+            String tableName,
+            TableSchema<T> tableSchema,
+            DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient) {
+        this(tableName, tableSchema, dynamoDbEnhancedAsyncClient, null);
+    }
+
+    // The low level client is only needed for partial updates, which the enhanced client lacks
+    public AsyncDataStore(
+            String tableName,
+            TableSchema<T> tableSchema,
+            DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient,
+            DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.table = dynamoDbEnhancedAsyncClient.table(tableName, tableSchema);
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    public CompletableFuture<Void> create(T item) {
+        return this.table.putItem(item);
+    }
+
+    public CompletableFuture<T> getItem(String partitionValue, String sortValue) {
+        return this.table.getItem(
+                Key.builder().partitionValue(partitionValue).sortValue(sortValue).build());
+    }
+
+    public CompletableFuture<T> getItem(String partitionValue) {
+        return this.table.getItem(Key.builder().partitionValue(partitionValue).build());
+    }
+
+    public CompletableFuture<List<T>> getItemByIndex(String indexName, String value) {
+        DynamoDbAsyncIndex<T> index = this.table.index(indexName);
+        var attVal = AttributeValue.builder().s(value).build();
+        var queryConditional =
+                QueryConditional.keyEqualTo(Key.builder().partitionValue(attVal).build());
+        var queryEnhancedRequest =
+                QueryEnhancedRequest.builder().queryConditional(queryConditional).build();
+
+        List<T> items = Collections.synchronizedList(new ArrayList<>());
+        return index.query(queryEnhancedRequest)
+                .subscribe(page -> items.addAll(page.items()))
+                .thenApply(ignored -> items);
+    }
+
+    public CompletableFuture<T> update(T item) {
+        return this.table.updateItem(item);
+    }
+
+    // The async counterpart of DataStore.update(T, Collection), completing with false when the
+    // item does not exist
+    public CompletableFuture<Boolean> update(T item, Collection<String> attributeNames) {
+        TableSchema<T> tableSchema = this.table.tableSchema();
+        UpdateItemRequest updateItemRequest =
+                DataStore.createPartialUpdateRequest(
+                        this.table.tableName(), tableSchema, item, attributeNames);
+        if (updateItemRequest == null) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        CompletableFuture<?> update;
+        if (dynamoDbAsyncClient == null) {
+            Expression itemExistsCondition = DataStore.createItemExistsCondition(tableSchema);
+            update =
+                    this.table.updateItem(
+                            r -> r.item(item).conditionExpression(itemExistsCondition));
+        } else {
+            update = dynamoDbAsyncClient.updateItem(updateItemRequest);
+        }
+        return update.handle(
+                (response, error) -> {
+                    if (error == null) {
+                        return true;
+                    }
+                    Throwable cause =
+                            error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof ConditionalCheckFailedException) {
+                        return false;
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+    public CompletableFuture<T> delete(String partitionValue, String sortValue) {
+        return this.table.deleteItem(
+                Key.builder().partitionValue(partitionValue).sortValue(sortValue).build());
+    }
+
+    public CompletableFuture<T> delete(String partitionValue) {
+        return this.table.deleteItem(Key.builder().partitionValue(partitionValue).build());
+    }
+}
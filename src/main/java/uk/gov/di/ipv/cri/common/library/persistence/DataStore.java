@@ -5,41 +5,117 @@ import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Expression;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPage;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
 import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
 import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class DataStore<T> {
+    // DynamoDB limits a BatchGetItem to 100 keys and a BatchWriteItem to 25 requests
+    private static final int MAX_BATCH_GET_ITEMS = 100;
+    private static final int MAX_BATCH_WRITE_ITEMS = 25;
+    private static final int MAX_BATCH_RETRIES = 5;
+    private static final long BATCH_RETRY_BASE_DELAY_MILLIS = 25;
+    private static final long BATCH_RETRY_MAX_DELAY_MILLIS = 1000;
+    private static final int DEFAULT_MAX_SCAN_WORKERS = 8;
 
     private final DynamoDbTable<T> table;
+    private final Class<T> itemClass;
+    private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
+    private final DynamoDbClient dynamoDbClient;
+    private final Sleeper batchRetrySleeper;
 
     public DataStore(
             String tableName,
             Class<T> typeParameterClass,
             DynamoDbEnhancedClient dynamoDbEnhancedClient) {
-        this.table =
-                dynamoDbEnhancedClient.table(tableName, TableSchema.fromBean(typeParameterClass));
+        this(tableName, TableSchema.fromBean(typeParameterClass), dynamoDbEnhancedClient);
     }
 
-    public static DynamoDbEnhancedClient getClient() {
-        DynamoDbClientBuilder clientBuilder = getDynamoDbClientBuilder(DynamoDbClient.builder());
+    public DataStore(
+            String tableName,
+            TableSchema<T> tableSchema,
+            DynamoDbEnhancedClient dynamoDbEnhancedClient) {
+        this(tableName, tableSchema, dynamoDbEnhancedClient, null);
+    }
+
+    // The low level client is used for partial and expression updates, which the enhanced client
+    // lacks. Without it, expression updates use the DynamoDbEnhancedClientFactory shared client.
+    public DataStore(
+            String tableName,
+            TableSchema<T> tableSchema,
+            DynamoDbEnhancedClient dynamoDbEnhancedClient,
+            DynamoDbClient dynamoDbClient) {
+        this(tableName, tableSchema, dynamoDbEnhancedClient, dynamoDbClient, Thread::sleep);
+    }
 
-        return DynamoDbEnhancedClient.builder().dynamoDbClient(clientBuilder.build()).build();
+    DataStore(
+            String tableName,
+            TableSchema<T> tableSchema,
+            DynamoDbEnhancedClient dynamoDbEnhancedClient,
+            DynamoDbClient dynamoDbClient,
+            Sleeper batchRetrySleeper) {
+        this.table = dynamoDbEnhancedClient.table(tableName, tableSchema);
+        this.itemClass = tableSchema.itemType().rawClass();
+        this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+        this.dynamoDbClient = dynamoDbClient;
+        this.batchRetrySleeper = batchRetrySleeper;
+    }
+
+    // Unlike DynamoDbEnhancedClientFactory, which reads credentials from environment variables,
+    // this client uses the SDK's default credentials chain. It is shared once created.
+    public static DynamoDbEnhancedClient getClient() {
+        return DefaultCredentialsClientHolder.ENHANCED_CLIENT;
     }
 
     public void create(T item) {
         this.table.putItem(item);
     }
 
+    public boolean create(T item, Expression conditionExpression) {
+        try {
+            this.table.putItem(r -> r.item(item).conditionExpression(conditionExpression));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
     public T getItem(String partitionValue, String sortValue) {
         return getItemByKey(
                 Key.builder().partitionValue(partitionValue).sortValue(sortValue).build());
@@ -50,46 +126,251 @@ public class DataStore<T> {
     }
 
     public List<T> getItems(String partitionValue) {
+        return streamItems(partitionValue).collect(Collectors.toList());
+    }
+
+    // Pages are fetched lazily as the stream is consumed, so short-circuiting stops the query
+    public Stream<T> streamItems(String partitionValue) {
+        return this.table.query(createPartitionKeyQuery(partitionValue, null)).items().stream();
+    }
+
+    public Stream<T> streamItems(String partitionValue, int limit) {
         return this.table
-                .query(
-                        QueryConditional.keyEqualTo(
-                                Key.builder().partitionValue(partitionValue).build()))
+                .query(createPartitionKeyQuery(partitionValue, limit))
+                .items()
                 .stream()
-                .flatMap(page -> page.items().stream())
-                .collect(Collectors.toList());
+                .limit(limit);
+    }
+
+    public List<T> getItems(Collection<String> partitionValues) throws DynamoDbException {
+        List<Key> keys =
+                new LinkedHashSet<>(partitionValues)
+                        .stream()
+                        .map(value -> Key.builder().partitionValue(value).build())
+                        .collect(Collectors.toList());
+
+        List<T> items = new ArrayList<>(keys.size());
+        for (int start = 0; start < keys.size(); start += MAX_BATCH_GET_ITEMS) {
+            int end = Math.min(start + MAX_BATCH_GET_ITEMS, keys.size());
+            items.addAll(batchGetItems(keys.subList(start, end)));
+        }
+        return items;
+    }
+
+    public void createAll(Collection<T> items) throws DynamoDbException {
+        List<T> itemList = new ArrayList<>(items);
+        for (int start = 0; start < itemList.size(); start += MAX_BATCH_WRITE_ITEMS) {
+            int end = Math.min(start + MAX_BATCH_WRITE_ITEMS, itemList.size());
+            batchPutItems(itemList.subList(start, end));
+        }
     }
 
     public List<T> getItemByIndex(String indexName, String value) throws DynamoDbException {
+        return streamItemsByIndex(indexName, value).collect(Collectors.toList());
+    }
+
+    public Stream<T> streamItemsByIndex(String indexName, String value) throws DynamoDbException {
+        DynamoDbIndex<T> index = this.table.index(indexName);
+
+        return index.query(createPartitionKeyQuery(value, null)).stream()
+                .flatMap(page -> page.items().stream());
+    }
+
+    public Stream<T> streamItemsByIndex(String indexName, String value, int limit)
+            throws DynamoDbException {
         DynamoDbIndex<T> index = this.table.index(indexName);
-        var attVal = AttributeValue.builder().s(value).build();
-        var queryConditional =
-                QueryConditional.keyEqualTo(Key.builder().partitionValue(attVal).build());
-        var queryEnhancedRequest =
-                QueryEnhancedRequest.builder().queryConditional(queryConditional).build();
 
-        return index.query(queryEnhancedRequest).stream()
+        return index.query(createPartitionKeyQuery(value, limit)).stream()
                 .flatMap(page -> page.items().stream())
-                .collect(Collectors.toList());
+                .limit(limit);
     }
 
     public List<T> getItemsByAttribute(String attributeName, String attributeValue) {
-        AttributeValue expressionValue = AttributeValue.builder().s(attributeValue).build();
         Expression attributeFilterExpression =
-                Expression.builder()
-                        .expression("#a = :b")
-                        .putExpressionName("#a", attributeName)
-                        .putExpressionValue(":b", expressionValue)
-                        .build();
+                createAttributeFilterExpression(attributeName, attributeValue);
 
         return this.table.scan(r -> r.filterExpression(attributeFilterExpression)).stream()
                 .flatMap(page -> page.items().stream())
                 .collect(Collectors.toList());
     }
 
+    // Scans totalSegments segments in parallel, up to DEFAULT_MAX_SCAN_WORKERS at a time, so
+    // itemConsumer is called concurrently and must be thread safe. An empty
+    // attributesToProject reads whole items. Segments from every caller share one pool of
+    // DEFAULT_MAX_SCAN_WORKERS threads.
+    public void scanItemsByAttribute(
+            String attributeName,
+            String attributeValue,
+            int totalSegments,
+            Collection<String> attributesToProject,
+            Consumer<T> itemConsumer)
+            throws DynamoDbException {
+        scanItemsByAttribute(
+                attributeName,
+                attributeValue,
+                totalSegments,
+                attributesToProject,
+                itemConsumer,
+                DEFAULT_MAX_SCAN_WORKERS,
+                ScanExecutorHolder.EXECUTOR);
+    }
+
+    public void scanItemsByAttribute(
+            String attributeName,
+            String attributeValue,
+            int totalSegments,
+            Collection<String> attributesToProject,
+            Consumer<T> itemConsumer,
+            Executor scanExecutor)
+            throws DynamoDbException {
+        scanItemsByAttribute(
+                attributeName,
+                attributeValue,
+                totalSegments,
+                attributesToProject,
+                itemConsumer,
+                DEFAULT_MAX_SCAN_WORKERS,
+                scanExecutor);
+    }
+
+    // At most maxScanWorkers segments of this scan are submitted to scanExecutor at once
+    public void scanItemsByAttribute(
+            String attributeName,
+            String attributeValue,
+            int totalSegments,
+            Collection<String> attributesToProject,
+            Consumer<T> itemConsumer,
+            int maxScanWorkers,
+            Executor scanExecutor)
+            throws DynamoDbException {
+        if (totalSegments < 1) {
+            throw new IllegalArgumentException("totalSegments must be at least 1");
+        }
+        if (maxScanWorkers < 1) {
+            throw new IllegalArgumentException("maxScanWorkers must be at least 1");
+        }
+        Expression attributeFilterExpression =
+                createAttributeFilterExpression(attributeName, attributeValue);
+
+        CompletionService<Void> segmentScans = new ExecutorCompletionService<>(scanExecutor);
+        List<Future<Void>> submittedScans = new ArrayList<>(totalSegments);
+        int nextSegment = 0;
+        try {
+            while (nextSegment < Math.min(totalSegments, maxScanWorkers)) {
+                submittedScans.add(
+                        submitSegmentScan(
+                                segmentScans,
+                                nextSegment++,
+                                totalSegments,
+                                attributeFilterExpression,
+                                attributesToProject,
+                                itemConsumer));
+            }
+            for (int completed = 0; completed < totalSegments; completed++) {
+                // Segments are awaited as they finish, so the first failure is seen straight away
+                segmentScans.take().get();
+                if (nextSegment < totalSegments) {
+                    submittedScans.add(
+                            submitSegmentScan(
+                                    segmentScans,
+                                    nextSegment++,
+                                    totalSegments,
+                                    attributeFilterExpression,
+                                    attributesToProject,
+                                    itemConsumer));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw DynamoDbException.builder()
+                    .message("Interrupted while scanning table segments")
+                    .cause(e)
+                    .build();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw DynamoDbException.builder()
+                    .message("Table segment scan failed")
+                    .cause(e.getCause())
+                    .build();
+        } finally {
+            // Stops the remaining segments if one of them failed
+            submittedScans.forEach(segmentScan -> segmentScan.cancel(true));
+        }
+    }
+
     public T update(T item) {
         return this.table.updateItem(item);
     }
 
+    // Writes only the named attributes of item in one UpdateItem call. Attributes that are null on
+    // the item are removed, and key attributes are never rewritten. Returns false, without
+    // writing, when the item does not exist, so no item is created from the named attributes
+    // alone. Without a DynamoDbClient the whole item is written under the same condition.
+    public boolean update(T item, Collection<String> attributeNames) {
+        TableSchema<T> tableSchema = this.table.tableSchema();
+        UpdateItemRequest updateItemRequest =
+                createPartialUpdateRequest(
+                        this.table.tableName(), tableSchema, item, attributeNames);
+        if (updateItemRequest == null) {
+            return true;
+        }
+
+        try {
+            if (dynamoDbClient == null) {
+                Expression itemExistsCondition = createItemExistsCondition(tableSchema);
+                this.table.updateItem(r -> r.item(item).conditionExpression(itemExistsCondition));
+            } else {
+                dynamoDbClient.updateItem(updateItemRequest);
+            }
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    // Applies updateExpression in a single UpdateItem call and returns the updated item, or null
+    // when conditionExpression does not hold. Works without a configured DynamoDbClient.
+    public T update(
+            String partitionValue, Expression updateExpression, Expression conditionExpression) {
+        Map<String, AttributeValue> key =
+                Key.builder()
+                        .partitionValue(partitionValue)
+                        .build()
+                        .keyMap(this.table.tableSchema(), TableMetadata.primaryIndexName());
+        Map<String, String> expressionNames =
+                Expression.joinNames(
+                        updateExpression.expressionNames(),
+                        conditionExpression.expressionNames());
+        Map<String, AttributeValue> expressionValues =
+                Expression.joinValues(
+                        updateExpression.expressionValues(),
+                        conditionExpression.expressionValues());
+
+        UpdateItemRequest.Builder updateItemRequest =
+                UpdateItemRequest.builder()
+                        .tableName(this.table.tableName())
+                        .key(key)
+                        .updateExpression(updateExpression.expression())
+                        .conditionExpression(conditionExpression.expression())
+                        .returnValues(ReturnValue.ALL_NEW);
+        // DynamoDB rejects empty expression attribute maps
+        if (expressionNames != null && !expressionNames.isEmpty()) {
+            updateItemRequest.expressionAttributeNames(expressionNames);
+        }
+        if (expressionValues != null && !expressionValues.isEmpty()) {
+            updateItemRequest.expressionAttributeValues(expressionValues);
+        }
+
+        try {
+            UpdateItemResponse response = getDynamoDbClient().updateItem(updateItemRequest.build());
+            return this.table.tableSchema().mapToItem(response.attributes());
+        } catch (ConditionalCheckFailedException e) {
+            return null;
+        }
+    }
+
     public T delete(String partitionValue, String sortValue) {
         return delete(Key.builder().partitionValue(partitionValue).sortValue(sortValue).build());
     }
@@ -98,6 +379,200 @@ public class DataStore<T> {
         return delete(Key.builder().partitionValue(partitionValue).build());
     }
 
+    // A limit is passed to DynamoDB as the page size, so no page holds more than the caller uses
+    private static QueryEnhancedRequest createPartitionKeyQuery(
+            String partitionValue, Integer limit) {
+        var attVal = AttributeValue.builder().s(partitionValue).build();
+        var queryConditional =
+                QueryConditional.keyEqualTo(Key.builder().partitionValue(attVal).build());
+
+        return QueryEnhancedRequest.builder()
+                .queryConditional(queryConditional)
+                .limit(limit)
+                .build();
+    }
+
+    // Shared with AsyncDataStore. Returns null when attributeNames only names key attributes.
+    static <T> UpdateItemRequest createPartialUpdateRequest(
+            String tableName,
+            TableSchema<T> tableSchema,
+            T item,
+            Collection<String> attributeNames) {
+        List<String> keyAttributeNames = new ArrayList<>();
+        keyAttributeNames.add(tableSchema.tableMetadata().primaryPartitionKey());
+        tableSchema.tableMetadata().primarySortKey().ifPresent(keyAttributeNames::add);
+        List<String> updatedAttributeNames =
+                attributeNames.stream()
+                        .filter(attributeName -> !keyAttributeNames.contains(attributeName))
+                        .distinct()
+                        .collect(Collectors.toList());
+        if (updatedAttributeNames.isEmpty()) {
+            return null;
+        }
+
+        Map<String, AttributeValue> attributeValues =
+                tableSchema.itemToMap(item, updatedAttributeNames);
+        Expression itemExistsCondition = createItemExistsCondition(tableSchema);
+        Map<String, String> expressionNames =
+                new HashMap<>(itemExistsCondition.expressionNames());
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        List<String> setActions = new ArrayList<>();
+        List<String> removeActions = new ArrayList<>();
+        for (int i = 0; i < updatedAttributeNames.size(); i++) {
+            String attributeName = updatedAttributeNames.get(i);
+            AttributeValue attributeValue = attributeValues.get(attributeName);
+            expressionNames.put("#a" + i, attributeName);
+            if (attributeValue == null || Boolean.TRUE.equals(attributeValue.nul())) {
+                removeActions.add("#a" + i);
+            } else {
+                expressionValues.put(":a" + i, attributeValue);
+                setActions.add("#a" + i + " = :a" + i);
+            }
+        }
+
+        UpdateItemRequest.Builder updateItemRequest =
+                UpdateItemRequest.builder()
+                        .tableName(tableName)
+                        .key(tableSchema.itemToMap(item, keyAttributeNames))
+                        .updateExpression(createUpdateExpression(setActions, removeActions))
+                        .conditionExpression(itemExistsCondition.expression())
+                        .expressionAttributeNames(expressionNames);
+        if (!expressionValues.isEmpty()) {
+            updateItemRequest.expressionAttributeValues(expressionValues);
+        }
+        return updateItemRequest.build();
+    }
+
+    static <T> Expression createItemExistsCondition(TableSchema<T> tableSchema) {
+        return Expression.builder()
+                .expression("attribute_exists(#pk)")
+                .putExpressionName("#pk", tableSchema.tableMetadata().primaryPartitionKey())
+                .build();
+    }
+
+    private static String createUpdateExpression(
+            List<String> setActions, List<String> removeActions) {
+        StringBuilder updateExpression = new StringBuilder();
+        if (!setActions.isEmpty()) {
+            updateExpression.append("SET ").append(String.join(", ", setActions));
+        }
+        if (!removeActions.isEmpty()) {
+            if (updateExpression.length() > 0) {
+                updateExpression.append(' ');
+            }
+            updateExpression.append("REMOVE ").append(String.join(", ", removeActions));
+        }
+        return updateExpression.toString();
+    }
+
+    private Future<Void> submitSegmentScan(
+            CompletionService<Void> segmentScans,
+            int segment,
+            int totalSegments,
+            Expression attributeFilterExpression,
+            Collection<String> attributesToProject,
+            Consumer<T> itemConsumer) {
+        ScanEnhancedRequest.Builder scanRequest =
+                ScanEnhancedRequest.builder()
+                        .segment(segment)
+                        .totalSegments(totalSegments)
+                        .filterExpression(attributeFilterExpression);
+        if (!attributesToProject.isEmpty()) {
+            scanRequest.attributesToProject(attributesToProject);
+        }
+        ScanEnhancedRequest segmentScanRequest = scanRequest.build();
+        return segmentScans.submit(() -> scanSegment(segmentScanRequest, itemConsumer), null);
+    }
+
+    private void scanSegment(ScanEnhancedRequest scanRequest, Consumer<T> itemConsumer) {
+        this.table.scan(scanRequest).items().forEach(itemConsumer);
+    }
+
+    private static Expression createAttributeFilterExpression(
+            String attributeName, String attributeValue) {
+        AttributeValue expressionValue = AttributeValue.builder().s(attributeValue).build();
+        return Expression.builder()
+                .expression("#a = :b")
+                .putExpressionName("#a", attributeName)
+                .putExpressionValue(":b", expressionValue)
+                .build();
+    }
+
+    private List<T> batchGetItems(List<Key> keys) {
+        ReadBatch.Builder<T> readBatch =
+                ReadBatch.builder(this.itemClass).mappedTableResource(this.table);
+        keys.forEach(readBatch::addGetItem);
+
+        // Each page after the first re-requests the keys DynamoDB left unprocessed
+        Iterator<BatchGetResultPage> pages =
+                this.dynamoDbEnhancedClient
+                        .batchGetItem(
+                                BatchGetItemEnhancedRequest.builder()
+                                        .readBatches(readBatch.build())
+                                        .build())
+                        .iterator();
+        List<T> items = new ArrayList<>(keys.size());
+        for (int attempt = 0; pages.hasNext(); attempt++) {
+            if (attempt > 0) {
+                backOff(attempt, "keys");
+            }
+            items.addAll(pages.next().resultsForTable(this.table));
+        }
+        return items;
+    }
+
+    private void batchPutItems(List<T> items) {
+        List<T> remainingItems = items;
+        for (int attempt = 0; !remainingItems.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                backOff(attempt, "items");
+            }
+            WriteBatch.Builder<T> writeBatch =
+                    WriteBatch.builder(this.itemClass).mappedTableResource(this.table);
+            remainingItems.forEach(writeBatch::addPutItem);
+
+            BatchWriteResult result =
+                    this.dynamoDbEnhancedClient.batchWriteItem(
+                            BatchWriteItemEnhancedRequest.builder()
+                                    .writeBatches(writeBatch.build())
+                                    .build());
+            remainingItems = result.unprocessedPutItemsForTable(this.table);
+        }
+    }
+
+    private void backOff(int attempt, String unprocessedType) {
+        if (attempt > MAX_BATCH_RETRIES) {
+            throw DynamoDbException.builder()
+                    .message(
+                            String.format(
+                                    "Unprocessed %s remained after %d batch retries",
+                                    unprocessedType, MAX_BATCH_RETRIES))
+                    .build();
+        }
+
+        // Exponential backoff with full jitter, as recommended for throttled batch requests
+        long maxDelay =
+                Math.min(
+                        BATCH_RETRY_MAX_DELAY_MILLIS,
+                        BATCH_RETRY_BASE_DELAY_MILLIS << (attempt - 1));
+        try {
+            batchRetrySleeper.sleep(ThreadLocalRandom.current().nextLong(maxDelay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw DynamoDbException.builder()
+                    .message("Interrupted while retrying a batch request")
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    private DynamoDbClient getDynamoDbClient() {
+        if (dynamoDbClient == null) {
+            return new DynamoDbEnhancedClientFactory().getDynamoDbClient();
+        }
+        return dynamoDbClient;
+    }
+
     private T getItemByKey(Key key) {
         return this.table.getItem(key);
     }
@@ -106,7 +581,29 @@ public class DataStore<T> {
         return this.table.deleteItem(key);
     }
 
-    private static DynamoDbClientBuilder getDynamoDbClientBuilder(DynamoDbClientBuilder builder) {
-        return builder.httpClient(UrlConnectionHttpClient.create()).region(Region.EU_WEST_2);
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private static class DefaultCredentialsClientHolder {
+        private static final DynamoDbEnhancedClient ENHANCED_CLIENT =
+                DynamoDbEnhancedClient.builder()
+                        .dynamoDbClient(
+                                DynamoDbClient.builder()
+                                        .httpClient(UrlConnectionHttpClient.create())
+                                        .region(Region.EU_WEST_2)
+                                        .build())
+                        .build();
+    }
+
+    private static class ScanExecutorHolder {
+        private static final ExecutorService EXECUTOR =
+                Executors.newFixedThreadPool(
+                        DEFAULT_MAX_SCAN_WORKERS,
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "data-store-scan");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
     }
 }
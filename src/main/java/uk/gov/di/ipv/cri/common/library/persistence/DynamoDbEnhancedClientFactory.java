@@ -1,26 +1,91 @@
 package uk.gov.di.ipv.cri.common.library.persistence;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeEndpointsRequest;
 
 public class DynamoDbEnhancedClientFactory {
+    private static final Logger LOGGER = LogManager.getLogger();
 
     private final DynamoDbEnhancedClient client;
 
+    // All factories in the process share one client, HTTP connection pool and credentials provider
     public DynamoDbEnhancedClientFactory() {
+        this.client = SharedClientHolder.ENHANCED_CLIENT;
+    }
+
+    public DynamoDbEnhancedClient getClient() {
+        return this.client;
+    }
+
+    // The low level client behind getClient, for requests the enhanced client cannot express
+    public DynamoDbClient getDynamoDbClient() {
+        return SharedClientHolder.DYNAMO_DB_CLIENT;
+    }
+
+    // The async client has its own holder so only callers that use it pay for its event loop
+    public DynamoDbEnhancedAsyncClient getAsyncClient() {
+        return SharedAsyncClientHolder.ENHANCED_ASYNC_CLIENT;
+    }
+
+    public DynamoDbAsyncClient getDynamoDbAsyncClient() {
+        return SharedAsyncClientHolder.DYNAMO_DB_ASYNC_CLIENT;
+    }
+
+    // Creates the shared client, if needed, and opens a connection to DynamoDB ahead of first use
+    public static void warmUp() {
+        warmUp(SharedClientHolder.DYNAMO_DB_CLIENT);
+    }
+
+    static void warmUp(DynamoDbClient dynamoDbClient) {
+        try {
+            dynamoDbClient.describeEndpoints(DescribeEndpointsRequest.builder().build());
+        } catch (SdkException e) {
+            // The connection and TLS session are established even when the call itself fails
+            LOGGER.warn("DynamoDB client warm up call failed: {}", e.getMessage());
+        }
+    }
+
+    private static DynamoDbClient createDynamoDbClient() {
         DynamoDbClient dynamoDbClient =
                 DynamoDbClient.builder()
                         .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
                         .httpClient(UrlConnectionHttpClient.create())
                         .region(Region.EU_WEST_2)
                         .build();
-        this.client = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+        if (Boolean.parseBoolean(System.getenv("DYNAMODB_CLIENT_WARM_UP"))) {
+            warmUp(dynamoDbClient);
+        }
+        return dynamoDbClient;
     }
 
-    public DynamoDbEnhancedClient getClient() {
-        return this.client;
+    private static DynamoDbAsyncClient createDynamoDbAsyncClient() {
+        return DynamoDbAsyncClient.builder()
+                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                .region(Region.EU_WEST_2)
+                .build();
+    }
+
+    private static class SharedClientHolder {
+        private static final DynamoDbClient DYNAMO_DB_CLIENT = createDynamoDbClient();
+        private static final DynamoDbEnhancedClient ENHANCED_CLIENT =
+                DynamoDbEnhancedClient.builder().dynamoDbClient(DYNAMO_DB_CLIENT).build();
+    }
+
+    private static class SharedAsyncClientHolder {
+        private static final DynamoDbAsyncClient DYNAMO_DB_ASYNC_CLIENT =
+                createDynamoDbAsyncClient();
+        private static final DynamoDbEnhancedAsyncClient ENHANCED_ASYNC_CLIENT =
+                DynamoDbEnhancedAsyncClient.builder()
+                        .dynamoDbClient(DYNAMO_DB_ASYNC_CLIENT)
+                        .build();
     }
 }
@@ -0,0 +1,47 @@
+package uk.gov.di.ipv.cri.common.library.persistence;
+
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import uk.gov.di.ipv.cri.common.library.annotations.ExcludeFromGeneratedCoverageReport;
+import uk.gov.di.ipv.cri.common.library.persistence.item.JtiItem;
+import uk.gov.di.ipv.cri.common.library.service.ConfigurationService;
+
+import java.time.Clock;
+
+public class DynamoDbJtiStore implements JtiStore {
+    private static final String JTI_TABLE_PARAM_NAME = "JtiTableName";
+    private final DataStore<JtiItem> dataStore;
+    private final Clock clock;
+
+    @ExcludeFromGeneratedCoverageReport
+    public DynamoDbJtiStore(ConfigurationService configurationService) {
+        this(
+                new DataStore<>(
+                        configurationService.getParameterValue(JTI_TABLE_PARAM_NAME),
+                        JtiItem.class,
+                        new DynamoDbEnhancedClientFactory().getClient()),
+                Clock.systemUTC());
+    }
+
+    public DynamoDbJtiStore(DataStore<JtiItem> dataStore, Clock clock) {
+        this.dataStore = dataStore;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean recordIfAbsent(String clientId, String jti, long expiryEpochSecond) {
+        // Items past their expiry may not have been removed by the table TTL yet
+        Expression unusedOrExpired =
+                Expression.builder()
+                        .expression("attribute_not_exists(#jti) OR #expiryDate < :now")
+                        .putExpressionName("#jti", "jti")
+                        .putExpressionName("#expiryDate", "expiryDate")
+                        .putExpressionValue(
+                                ":now",
+                                AttributeValue.builder()
+                                        .n(String.valueOf(clock.instant().getEpochSecond()))
+                                        .build())
+                        .build();
+        return dataStore.create(new JtiItem(clientId, jti, expiryEpochSecond), unusedOrExpired);
+    }
+}
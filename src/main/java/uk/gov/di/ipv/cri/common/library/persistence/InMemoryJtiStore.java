@@ -0,0 +1,54 @@
+package uk.gov.di.ipv.cri.common.library.persistence;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InMemoryJtiStore implements JtiStore {
+    private static final long SWEEP_INTERVAL_IN_SECS = 60L;
+    private final Map<List<String>, Long> jtiExpiries = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepEpochSecond = new AtomicLong();
+    private final Clock clock;
+
+    public InMemoryJtiStore() {
+        this(Clock.systemUTC());
+    }
+
+    public InMemoryJtiStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean recordIfAbsent(String clientId, String jti, long expiryEpochSecond) {
+        long now = clock.instant().getEpochSecond();
+        AtomicBoolean recorded = new AtomicBoolean(false);
+        jtiExpiries.compute(
+                List.of(clientId, jti),
+                (key, existingExpiry) -> {
+                    if (existingExpiry != null && existingExpiry >= now) {
+                        return existingExpiry;
+                    }
+                    recorded.set(true);
+                    return expiryEpochSecond;
+                });
+        removeExpired(now);
+        return recorded.get();
+    }
+
+    int size() {
+        return jtiExpiries.size();
+    }
+
+    // Expired entries are already ignored on lookup, so they are only swept once per interval,
+    // by whichever caller gets there first
+    private void removeExpired(long now) {
+        long nextSweep = nextSweepEpochSecond.get();
+        if (now >= nextSweep
+                && nextSweepEpochSecond.compareAndSet(nextSweep, now + SWEEP_INTERVAL_IN_SECS)) {
+            jtiExpiries.values().removeIf(expiry -> expiry < now);
+        }
+    }
+}
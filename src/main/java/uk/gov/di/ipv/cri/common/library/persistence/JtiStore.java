@@ -0,0 +1,6 @@
+package uk.gov.di.ipv.cri.common.library.persistence;
+
+public interface JtiStore {
+    // jti values are only unique per issuing client, so they are recorded per client
+    boolean recordIfAbsent(String clientId, String jti, long expiryEpochSecond);
+}
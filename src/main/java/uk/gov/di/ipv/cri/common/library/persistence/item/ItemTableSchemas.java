@@ -0,0 +1,297 @@
+package uk.gov.di.ipv.cri.common.library.persistence.item;
+
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityDateOfBirth;
+import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityItem;
+import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityName;
+import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityNamePart;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Hand-built equivalents of TableSchema.fromBean for the library's items, avoiding the bean
+// introspection and lambda generation that fromBean performs at runtime
+public final class ItemTableSchemas {
+    public static final TableSchema<PersonIdentityNamePart> PERSON_IDENTITY_NAME_PART =
+            createPersonIdentityNamePartSchema();
+    public static final TableSchema<PersonIdentityName> PERSON_IDENTITY_NAME =
+            createPersonIdentityNameSchema();
+    public static final TableSchema<PersonIdentityDateOfBirth> PERSON_IDENTITY_DATE_OF_BIRTH =
+            createPersonIdentityDateOfBirthSchema();
+    public static final TableSchema<CanonicalAddress> CANONICAL_ADDRESS =
+            createCanonicalAddressSchema();
+    public static final TableSchema<PersonIdentityItem> PERSON_IDENTITY_ITEM =
+            createPersonIdentityItemSchema();
+    public static final TableSchema<SessionItem> SESSION_ITEM = createSessionItemSchema();
+
+    private ItemTableSchemas() {}
+
+    static TableSchema<SessionItem> createSessionItemSchema() {
+        return StaticTableSchema.builder(SessionItem.class)
+                .newItemSupplier(SessionItem::new)
+                .addAttribute(
+                        UUID.class,
+                        a ->
+                                a.name("sessionId")
+                                        .getter(SessionItem::getSessionId)
+                                        .setter(SessionItem::setSessionId)
+                                        .tags(StaticAttributeTags.primaryPartitionKey()))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("authorizationCode")
+                                        .getter(SessionItem::getAuthorizationCode)
+                                        .setter(SessionItem::setAuthorizationCode)
+                                        .tags(
+                                                StaticAttributeTags.secondaryPartitionKey(
+                                                        SessionItem.AUTHORIZATION_CODE_INDEX)))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("accessToken")
+                                        .getter(SessionItem::getAccessToken)
+                                        .setter(SessionItem::setAccessToken)
+                                        .tags(
+                                                StaticAttributeTags.secondaryPartitionKey(
+                                                        SessionItem.ACCESS_TOKEN_INDEX)))
+                .addAttribute(
+                        Long.class,
+                        a ->
+                                a.name("expiryDate")
+                                        .getter(SessionItem::getExpiryDate)
+                                        .setter(SessionItem::setExpiryDate))
+                .addAttribute(
+                        Long.class,
+                        a ->
+                                a.name("createdDate")
+                                        .getter(SessionItem::getCreatedDate)
+                                        .setter(SessionItem::setCreatedDate))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("clientId")
+                                        .getter(SessionItem::getClientId)
+                                        .setter(SessionItem::setClientId))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("state")
+                                        .getter(SessionItem::getState)
+                                        .setter(SessionItem::setState))
+                .addAttribute(
+                        URI.class,
+                        a ->
+                                a.name("redirectUri")
+                                        .getter(SessionItem::getRedirectUri)
+                                        .setter(SessionItem::setRedirectUri))
+                .addAttribute(
+                        Long.class,
+                        a ->
+                                a.name("authorizationCodeExpiryDate")
+                                        .getter(SessionItem::getAuthorizationCodeExpiryDate)
+                                        .setter(SessionItem::setAuthorizationCodeExpiryDate))
+                .addAttribute(
+                        Long.class,
+                        a ->
+                                a.name("accessTokenExpiryDate")
+                                        .getter(SessionItem::getAccessTokenExpiryDate)
+                                        .setter(SessionItem::setAccessTokenExpiryDate))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("subject")
+                                        .getter(SessionItem::getSubject)
+                                        .setter(SessionItem::setSubject))
+                .build();
+    }
+
+    static TableSchema<PersonIdentityItem> createPersonIdentityItemSchema() {
+        return StaticTableSchema.builder(PersonIdentityItem.class)
+                .newItemSupplier(PersonIdentityItem::new)
+                .addAttribute(
+                        UUID.class,
+                        a ->
+                                a.name("sessionId")
+                                        .getter(PersonIdentityItem::getSessionId)
+                                        .setter(PersonIdentityItem::setSessionId)
+                                        .tags(StaticAttributeTags.primaryPartitionKey()))
+                .addAttribute(
+                        EnhancedType.listOf(
+                                EnhancedType.documentOf(
+                                        CanonicalAddress.class, CANONICAL_ADDRESS)),
+                        a ->
+                                a.name("addresses")
+                                        .getter(PersonIdentityItem::getAddresses)
+                                        .setter(PersonIdentityItem::setAddresses))
+                .addAttribute(
+                        EnhancedType.listOf(
+                                EnhancedType.documentOf(
+                                        PersonIdentityName.class, PERSON_IDENTITY_NAME)),
+                        a ->
+                                a.name("names")
+                                        .getter(PersonIdentityItem::getNames)
+                                        .setter(PersonIdentityItem::setNames))
+                .addAttribute(
+                        EnhancedType.listOf(
+                                EnhancedType.documentOf(
+                                        PersonIdentityDateOfBirth.class,
+                                        PERSON_IDENTITY_DATE_OF_BIRTH)),
+                        a ->
+                                a.name("birthDates")
+                                        .getter(PersonIdentityItem::getBirthDates)
+                                        .setter(PersonIdentityItem::setBirthDates))
+                .addAttribute(
+                        Long.class,
+                        a ->
+                                a.name("expiryDate")
+                                        .getter(PersonIdentityItem::getExpiryDate)
+                                        .setter(PersonIdentityItem::setExpiryDate))
+                .build();
+    }
+
+    static TableSchema<CanonicalAddress> createCanonicalAddressSchema() {
+        return StaticTableSchema.builder(CanonicalAddress.class)
+                .newItemSupplier(CanonicalAddress::new)
+                .addAttribute(
+                        Long.class,
+                        a ->
+                                a.name("uprn")
+                                        .getter(CanonicalAddress::getUprn)
+                                        .setter(CanonicalAddress::setUprn))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("organisationName")
+                                        .getter(CanonicalAddress::getOrganisationName)
+                                        .setter(CanonicalAddress::setOrganisationName))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("departmentName")
+                                        .getter(CanonicalAddress::getDepartmentName)
+                                        .setter(CanonicalAddress::setDepartmentName))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("subBuildingName")
+                                        .getter(CanonicalAddress::getSubBuildingName)
+                                        .setter(CanonicalAddress::setSubBuildingName))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("buildingNumber")
+                                        .getter(CanonicalAddress::getBuildingNumber)
+                                        .setter(CanonicalAddress::setBuildingNumber))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("buildingName")
+                                        .getter(CanonicalAddress::getBuildingName)
+                                        .setter(CanonicalAddress::setBuildingName))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("dependentStreetName")
+                                        .getter(CanonicalAddress::getDependentStreetName)
+                                        .setter(CanonicalAddress::setDependentStreetName))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("streetName")
+                                        .getter(CanonicalAddress::getStreetName)
+                                        .setter(CanonicalAddress::setStreetName))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("doubleDependentAddressLocality")
+                                        .getter(CanonicalAddress::getDoubleDependentAddressLocality)
+                                        .setter(
+                                                CanonicalAddress
+                                                        ::setDoubleDependentAddressLocality))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("dependentAddressLocality")
+                                        .getter(CanonicalAddress::getDependentAddressLocality)
+                                        .setter(CanonicalAddress::setDependentAddressLocality))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("addressLocality")
+                                        .getter(CanonicalAddress::getAddressLocality)
+                                        .setter(CanonicalAddress::setAddressLocality))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("postalCode")
+                                        .getter(CanonicalAddress::getPostalCode)
+                                        .setter(CanonicalAddress::setPostalCode))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("addressCountry")
+                                        .getter(CanonicalAddress::getAddressCountry)
+                                        .setter(CanonicalAddress::setAddressCountry))
+                .addAttribute(
+                        LocalDate.class,
+                        a ->
+                                a.name("validFrom")
+                                        .getter(CanonicalAddress::getValidFrom)
+                                        .setter(CanonicalAddress::setValidFrom))
+                .addAttribute(
+                        LocalDate.class,
+                        a ->
+                                a.name("validUntil")
+                                        .getter(CanonicalAddress::getValidUntil)
+                                        .setter(CanonicalAddress::setValidUntil))
+                .build();
+    }
+
+    static TableSchema<PersonIdentityName> createPersonIdentityNameSchema() {
+        return StaticTableSchema.builder(PersonIdentityName.class)
+                .newItemSupplier(PersonIdentityName::new)
+                .addAttribute(
+                        EnhancedType.listOf(
+                                EnhancedType.documentOf(
+                                        PersonIdentityNamePart.class, PERSON_IDENTITY_NAME_PART)),
+                        a ->
+                                a.name("nameParts")
+                                        .getter(PersonIdentityName::getNameParts)
+                                        .setter(PersonIdentityName::setNameParts))
+                .build();
+    }
+
+    static TableSchema<PersonIdentityNamePart> createPersonIdentityNamePartSchema() {
+        return StaticTableSchema.builder(PersonIdentityNamePart.class)
+                .newItemSupplier(PersonIdentityNamePart::new)
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("type")
+                                        .getter(PersonIdentityNamePart::getType)
+                                        .setter(PersonIdentityNamePart::setType))
+                .addAttribute(
+                        String.class,
+                        a ->
+                                a.name("value")
+                                        .getter(PersonIdentityNamePart::getValue)
+                                        .setter(PersonIdentityNamePart::setValue))
+                .build();
+    }
+
+    static TableSchema<PersonIdentityDateOfBirth> createPersonIdentityDateOfBirthSchema() {
+        return StaticTableSchema.builder(PersonIdentityDateOfBirth.class)
+                .newItemSupplier(PersonIdentityDateOfBirth::new)
+                .addAttribute(
+                        LocalDate.class,
+                        a ->
+                                a.name("value")
+                                        .getter(PersonIdentityDateOfBirth::getValue)
+                                        .setter(PersonIdentityDateOfBirth::setValue))
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package uk.gov.di.ipv.cri.common.library.persistence.item;
+
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortKey;
+
+@DynamoDbBean
+public class JtiItem {
+    private String clientId;
+    private String jti;
+    private long expiryDate;
+
+    public JtiItem() {
+        // Default constructor
+    }
+
+    public JtiItem(String clientId, String jti, long expiryDate) {
+        this.clientId = clientId;
+        this.jti = jti;
+        this.expiryDate = expiryDate;
+    }
+
+    @DynamoDbPartitionKey()
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    @DynamoDbSortKey()
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public long getExpiryDate() {
+        return expiryDate;
+    }
+
+    public void setExpiryDate(long expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+}
@@ -1,10 +1,15 @@
 package uk.gov.di.ipv.cri.common.library.persistence.item;
 
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbIgnore;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
 
 import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @DynamoDbBean
@@ -22,11 +27,28 @@ public class SessionItem {
     private String accessToken;
     private long accessTokenExpiryDate;
     private String subject;
+    // Null until resetChangedAttributes is called, meaning any attribute may have changed
+    private Set<String> changedAttributeNames;
 
     public SessionItem() {
         sessionId = UUID.randomUUID();
     }
 
+    // Copies the persisted attributes, not the change tracking; new attributes must be added here
+    public SessionItem(SessionItem sessionItem) {
+        this.sessionId = sessionItem.sessionId;
+        this.expiryDate = sessionItem.expiryDate;
+        this.createdDate = sessionItem.createdDate;
+        this.clientId = sessionItem.clientId;
+        this.state = sessionItem.state;
+        this.redirectUri = sessionItem.redirectUri;
+        this.authorizationCode = sessionItem.authorizationCode;
+        this.authorizationCodeExpiryDate = sessionItem.authorizationCodeExpiryDate;
+        this.accessToken = sessionItem.accessToken;
+        this.accessTokenExpiryDate = sessionItem.accessTokenExpiryDate;
+        this.subject = sessionItem.subject;
+    }
+
     @DynamoDbPartitionKey()
     public UUID getSessionId() {
         return sessionId;
@@ -43,6 +65,7 @@ public class SessionItem {
 
     public void setAuthorizationCode(String authorizationCode) {
         this.authorizationCode = authorizationCode;
+        markChanged("authorizationCode");
     }
 
     public long getExpiryDate() {
@@ -51,10 +74,12 @@ public class SessionItem {
 
     public void setExpiryDate(long expiryDate) {
         this.expiryDate = expiryDate;
+        markChanged("expiryDate");
     }
 
     public void setClientId(String clientId) {
         this.clientId = clientId;
+        markChanged("clientId");
     }
 
     public String getClientId() {
@@ -63,6 +88,7 @@ public class SessionItem {
 
     public void setState(String state) {
         this.state = state;
+        markChanged("state");
     }
 
     public String getState() {
@@ -71,6 +97,7 @@ public class SessionItem {
 
     public void setRedirectUri(URI redirectUri) {
         this.redirectUri = redirectUri;
+        markChanged("redirectUri");
     }
 
     public URI getRedirectUri() {
@@ -79,6 +106,7 @@ public class SessionItem {
 
     public void setAccessToken(String accessToken) {
         this.accessToken = accessToken;
+        markChanged("accessToken");
     }
 
     @DynamoDbSecondaryPartitionKey(indexNames = ACCESS_TOKEN_INDEX)
@@ -88,6 +116,7 @@ public class SessionItem {
 
     public void setSubject(String subject) {
         this.subject = subject;
+        markChanged("subject");
     }
 
     public String getSubject() {
@@ -100,6 +129,7 @@ public class SessionItem {
 
     public void setAuthorizationCodeExpiryDate(long authorizationCodeExpiryDate) {
         this.authorizationCodeExpiryDate = authorizationCodeExpiryDate;
+        markChanged("authorizationCodeExpiryDate");
     }
 
     public long getAccessTokenExpiryDate() {
@@ -108,6 +138,7 @@ public class SessionItem {
 
     public void setAccessTokenExpiryDate(long accessTokenExpiryDate) {
         this.accessTokenExpiryDate = accessTokenExpiryDate;
+        markChanged("accessTokenExpiryDate");
     }
 
     public long getCreatedDate() {
@@ -116,6 +147,23 @@ public class SessionItem {
 
     public void setCreatedDate(long createdDate) {
         this.createdDate = createdDate;
+        markChanged("createdDate");
+    }
+
+    // Starts tracking changes from the current state, e.g. once the item is read or written
+    public void resetChangedAttributes() {
+        changedAttributeNames = new HashSet<>();
+    }
+
+    @DynamoDbIgnore
+    public Optional<Set<String>> getChangedAttributeNames() {
+        return Optional.ofNullable(changedAttributeNames).map(Collections::unmodifiableSet);
+    }
+
+    private void markChanged(String attributeName) {
+        if (changedAttributeNames != null) {
+            changedAttributeNames.add(attributeName);
+        }
     }
 
     @Override
@@ -8,6 +8,7 @@ import com.nimbusds.oauth2.sdk.AuthorizationCodeGrant;
 import com.nimbusds.oauth2.sdk.OAuth2Error;
 import com.nimbusds.oauth2.sdk.TokenRequest;
 import com.nimbusds.oauth2.sdk.auth.ClientAuthentication;
+import com.nimbusds.oauth2.sdk.auth.JWTAuthenticationClaimsSet;
 import com.nimbusds.oauth2.sdk.auth.PrivateKeyJWT;
 import com.nimbusds.oauth2.sdk.http.HTTPRequest;
 import com.nimbusds.oauth2.sdk.id.Audience;
@@ -23,6 +24,7 @@ import uk.gov.di.ipv.cri.common.library.exception.AccessTokenRequestException;
 import uk.gov.di.ipv.cri.common.library.exception.AccessTokenValidationException;
 import uk.gov.di.ipv.cri.common.library.exception.ClientConfigurationException;
 import uk.gov.di.ipv.cri.common.library.exception.SessionValidationException;
+import uk.gov.di.ipv.cri.common.library.persistence.InMemoryJtiStore;
 import uk.gov.di.ipv.cri.common.library.persistence.item.SessionItem;
 
 import java.net.URI;
@@ -39,10 +41,35 @@ public class AccessTokenService {
     public static final String REDIRECT_URI = "redirect_uri";
     private final ConfigurationService configurationService;
     private final JWTVerifier jwtVerifier;
+    private final ClientConfigurationRegistry clientConfigurationRegistry;
+    private final JtiReplayCache jtiReplayCache;
 
+    // Replays are only detected within this container. Pass a JtiReplayCache backed by a
+    // DynamoDbJtiStore to detect them across containers.
     public AccessTokenService(ConfigurationService configurationService, JWTVerifier jwtVerifier) {
+        this(configurationService, jwtVerifier, new JtiReplayCache(new InMemoryJtiStore()));
+    }
+
+    public AccessTokenService(
+            ConfigurationService configurationService,
+            JWTVerifier jwtVerifier,
+            JtiReplayCache jtiReplayCache) {
+        this(
+                configurationService,
+                jwtVerifier,
+                new ClientConfigurationRegistry(configurationService),
+                jtiReplayCache);
+    }
+
+    public AccessTokenService(
+            ConfigurationService configurationService,
+            JWTVerifier jwtVerifier,
+            ClientConfigurationRegistry clientConfigurationRegistry,
+            JtiReplayCache jtiReplayCache) {
         this.configurationService = configurationService;
         this.jwtVerifier = jwtVerifier;
+        this.clientConfigurationRegistry = clientConfigurationRegistry;
+        this.jtiReplayCache = jtiReplayCache;
     }
 
     @ExcludeFromGeneratedCoverageReport
@@ -63,6 +90,9 @@ public class AccessTokenService {
         return new AccessTokenResponse(new Tokens(accessToken, null)).toSuccessResponse();
     }
 
+    // Saving the session afterwards does not stop a code being redeemed twice by racing requests.
+    // SessionService.redeemAuthorizationCode sets the token and removes the code in one
+    // conditional write instead.
     public void updateSessionAccessToken(
             SessionItem sessionItem, AccessTokenResponse tokenResponse) {
         // Set the access token
@@ -118,13 +148,14 @@ public class AccessTokenService {
                     (AuthorizationCodeGrant) tokenRequest.getAuthorizationGrant();
 
             ClientID clientID = tokenRequest.getClientAuthentication().getClientID();
-            validateTokenRequestToRecord(privateKeyJWT, authorizationGrant, clientID, sessionItem);
-
             Map<String, String> clientAuthenticationConfig =
-                    getClientAuthenticationConfig(clientID.getValue());
+                    validateTokenRequestToRecord(
+                            privateKeyJWT, authorizationGrant, clientID, sessionItem);
+
             SignedJWT signedJWT = privateKeyJWT.getClientAssertion();
 
             jwtVerifier.verifyAccessTokenJWT(clientAuthenticationConfig, signedJWT, clientID);
+            verifyJWTIdNotReplayed(privateKeyJWT);
             return tokenRequest;
         } catch (SessionValidationException
                 | ClientConfigurationException
@@ -135,16 +166,17 @@ public class AccessTokenService {
 
     private Map<String, String> getClientAuthenticationConfig(String clientId)
             throws SessionValidationException {
-        String path = String.format("/clients/%s/jwtAuthentication", clientId);
-        Map<String, String> clientConfig = configurationService.getParametersForPath(path);
-        if (clientConfig == null || clientConfig.isEmpty()) {
-            throw new SessionValidationException(
-                    String.format("no configuration for client id '%s'", clientId));
-        }
-        return clientConfig;
+        return clientConfigurationRegistry
+                .getClientAuthenticationConfig(clientId)
+                .orElseThrow(
+                        () ->
+                                new SessionValidationException(
+                                        String.format(
+                                                "no configuration for client id '%s'",
+                                                clientId)));
     }
 
-    private void validateTokenRequestToRecord(
+    private Map<String, String> validateTokenRequestToRecord(
             PrivateKeyJWT privateKeyJWT,
             AuthorizationCodeGrant authorizationGrant,
             ClientID clientID,
@@ -164,6 +196,7 @@ public class AccessTokenService {
 
         verifyRequestUri(sessionItem.getRedirectUri(), clientAuthenticationConfig);
         verifyPrivateKeyJWTAttributes(privateKeyJWT, clientID, sessionItem);
+        return clientAuthenticationConfig;
     }
 
     private void verifyRequestUri(URI requestRedirectUri, Map<String, String> clientConfig)
@@ -221,6 +254,18 @@ public class AccessTokenService {
         }
     }
 
+    private void verifyJWTIdNotReplayed(PrivateKeyJWT privateKeyJWT)
+            throws AccessTokenValidationException {
+        JWTAuthenticationClaimsSet claimsSet = privateKeyJWT.getJWTAuthenticationClaimsSet();
+        long expiryEpochSecond = claimsSet.getExpirationTime().toInstant().getEpochSecond();
+        if (jtiReplayCache.isReplay(
+                claimsSet.getClientID().getValue(),
+                claimsSet.getJWTID().getValue(),
+                expiryEpochSecond)) {
+            throwValidationException("jti has already been used");
+        }
+    }
+
     private void verifyIfAudiencePresent(List<Audience> audience)
             throws AccessTokenValidationException {
         if (audience.isEmpty()) {
@@ -0,0 +1,32 @@
+package uk.gov.di.ipv.cri.common.library.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+public class ClientConfigurationRegistry {
+    private static final String CLIENT_AUTHENTICATION_CONFIG_PATH_FORMAT =
+            "/clients/%s/jwtAuthentication";
+    private final ConfigurationService configurationService;
+
+    // Lookups, including those for unknown clients, are cached by the ConfigurationService path
+    // cache, which can be given its own TTL through ParameterCacheConfig
+    public ClientConfigurationRegistry(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+    public Optional<Map<String, String>> getClientAuthenticationConfig(String clientId) {
+        Map<String, String> clientConfig =
+                configurationService.getParametersForPath(getClientConfigPath(clientId));
+        return clientConfig == null || clientConfig.isEmpty()
+                ? Optional.empty()
+                : Optional.of(clientConfig);
+    }
+
+    public void invalidate(String clientId) {
+        configurationService.invalidateParametersForPath(getClientConfigPath(clientId));
+    }
+
+    private static String getClientConfigPath(String clientId) {
+        return String.format(CLIENT_AUTHENTICATION_CONFIG_PATH_FORMAT, clientId);
+    }
+}
@@ -4,9 +4,14 @@ import software.amazon.lambda.powertools.parameters.ParamManager;
 import software.amazon.lambda.powertools.parameters.SSMProvider;
 import software.amazon.lambda.powertools.parameters.SecretsProvider;
 import uk.gov.di.ipv.cri.common.library.annotations.ExcludeFromGeneratedCoverageReport;
+import uk.gov.di.ipv.cri.common.library.util.TtlCache;
 
 import java.time.Clock;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -16,10 +21,13 @@ public class ConfigurationService {
     private static final String PARAMETER_NAME_FORMAT = "/%s/%s";
     private static final long DEFAULT_BEARER_TOKEN_TTL_IN_SECS = 3600L;
     private static final Long AUTHORIZATION_CODE_TTL_IN_SECS = 600L;
+    private static final long DEFAULT_SESSION_CACHE_TTL_IN_SECS = 5L;
     private final SSMProvider ssmProvider;
     private final SecretsProvider secretsProvider;
     private final String parameterPrefix;
     private final Clock clock;
+    private final TtlCache<String, String> parameterCache;
+    private final TtlCache<String, Map<String, String>> parametersByPathCache;
 
     public enum SSMParameterName {
         SESSION_TTL("SessionTtl"),
@@ -37,12 +45,21 @@ public class ConfigurationService {
 
     @ExcludeFromGeneratedCoverageReport
     public ConfigurationService() {
-        this.clock = Clock.systemUTC();
-        this.ssmProvider = ParamManager.getSsmProvider();
-        this.secretsProvider = ParamManager.getSecretsProvider();
-        this.parameterPrefix =
+        this(
+                ParamManager.getSsmProvider(),
+                ParamManager.getSecretsProvider(),
                 Objects.requireNonNull(
-                        System.getenv("AWS_STACK_NAME"), "env var AWS_STACK_NAME required");
+                        System.getenv("AWS_STACK_NAME"), "env var AWS_STACK_NAME required"),
+                Clock.systemUTC(),
+                ParameterCacheConfig.fromEnvironment());
+    }
+
+    @ExcludeFromGeneratedCoverageReport
+    public ConfigurationService(boolean prefetchParameters) {
+        this();
+        if (prefetchParameters) {
+            prefetch();
+        }
     }
 
     public ConfigurationService(
@@ -50,15 +67,41 @@ public class ConfigurationService {
             SecretsProvider secretsProvider,
             String parameterPrefix,
             Clock clock) {
+        this(ssmProvider, secretsProvider, parameterPrefix, clock, ParameterCacheConfig.disabled());
+    }
+
+    public ConfigurationService(
+            SSMProvider ssmProvider,
+            SecretsProvider secretsProvider,
+            String parameterPrefix,
+            Clock clock,
+            ParameterCacheConfig parameterCacheConfig) {
         this.ssmProvider = ssmProvider;
         this.secretsProvider = secretsProvider;
         this.parameterPrefix = parameterPrefix;
         this.clock = clock;
+        this.parameterCache =
+                new TtlCache<>(
+                        parameterCacheConfig::getTtl,
+                        clock,
+                        parameterCacheConfig.getRefreshAhead(),
+                        parameterCacheConfig.getMaxStaleness(),
+                        parameterCacheConfig.getRefreshExecutor());
+        this.parametersByPathCache =
+                new TtlCache<>(
+                        parameterCacheConfig::getPathTtl,
+                        clock,
+                        parameterCacheConfig.getRefreshAhead(),
+                        parameterCacheConfig.getMaxStaleness(),
+                        parameterCacheConfig.getRefreshExecutor());
     }
 
     public String getParameterValue(String parameterName) {
-        return ssmProvider.get(
-                String.format(PARAMETER_NAME_FORMAT, parameterPrefix, parameterName));
+        return parameterCache.get(
+                parameterName,
+                name ->
+                        ssmProvider.get(
+                                String.format(PARAMETER_NAME_FORMAT, parameterPrefix, name)));
     }
 
     public String getSecretValue(String secretName) {
@@ -67,12 +110,45 @@ public class ConfigurationService {
     }
 
     public Map<String, String> getParametersForPath(String path) {
-        String format = String.format(PARAMETER_NAME_FORMAT, parameterPrefix, path);
-        return ssmProvider.recursive().getMultiple(format.replace("//", "/"));
+        return parametersByPathCache.get(
+                normalisePath(path),
+                p -> {
+                    String format = String.format(PARAMETER_NAME_FORMAT, parameterPrefix, p);
+                    return toUnmodifiableMap(
+                            ssmProvider.recursive().getMultiple(format.replace("//", "/")));
+                });
+    }
+
+    public void invalidateParametersForPath(String path) {
+        parametersByPathCache.invalidate(normalisePath(path));
+    }
+
+    public void prefetch() {
+        prefetch(
+                Optional.ofNullable(System.getenv("PARAMETER_PREFETCH_PATHS"))
+                        .map(paths -> Arrays.asList(paths.split(",")))
+                        .orElse(Collections.emptyList()));
+    }
+
+    public void prefetch(List<String> pathPrefixes) {
+        Map<String, String> parameters =
+                ssmProvider.recursive().getMultiple(String.format("/%s", parameterPrefix));
+        parameters.forEach(parameterCache::put);
+
+        for (String pathPrefix : pathPrefixes) {
+            String normalisedPrefix = normalisePath(pathPrefix);
+            if (!normalisedPrefix.isEmpty()) {
+                groupParametersByPath(parameters, normalisedPrefix)
+                        .forEach(
+                                (path, values) ->
+                                        parametersByPathCache.put(
+                                                path, toUnmodifiableMap(values)));
+            }
+        }
     }
 
     public long getSessionTtl() {
-        return Long.parseLong(ssmProvider.get(getParameterName(SSMParameterName.SESSION_TTL)));
+        return Long.parseLong(getParameterValue(SSMParameterName.SESSION_TTL));
     }
 
     public long getSessionExpirationEpoch() {
@@ -99,17 +175,38 @@ public class ConfigurationService {
         return clock.instant().plus(getBearerAccessTokenTtl(), ChronoUnit.SECONDS).getEpochSecond();
     }
 
+    // A size below one disables the session cache
+    public int getSessionCacheSize() {
+        return Optional.ofNullable(System.getenv("SESSION_CACHE_SIZE"))
+                .map(Integer::parseInt)
+                .orElse(0);
+    }
+
+    public long getSessionCacheTtl() {
+        return Optional.ofNullable(System.getenv("SESSION_CACHE_TTL"))
+                .map(Long::parseLong)
+                .orElse(DEFAULT_SESSION_CACHE_TTL_IN_SECS);
+    }
+
+    // With an ALL projection the session indexes return whole session items
+    public boolean isAccessTokenIndexProjectionAll() {
+        return "ALL".equalsIgnoreCase(System.getenv("ACCESS_TOKEN_INDEX_PROJECTION"));
+    }
+
+    public boolean isAuthorizationCodeIndexProjectionAll() {
+        return "ALL".equalsIgnoreCase(System.getenv("AUTHORIZATION_CODE_INDEX_PROJECTION"));
+    }
+
     public long getMaxJwtTtl() {
-        return Long.parseLong(ssmProvider.get(getParameterName(SSMParameterName.MAXIMUM_JWT_TTL)));
+        return Long.parseLong(getParameterValue(SSMParameterName.MAXIMUM_JWT_TTL));
     }
 
     public String getVerifiableCredentialIssuer() {
-        return ssmProvider.get(getParameterName(SSMParameterName.VERIFIABLE_CREDENTIAL_ISSUER));
+        return getParameterValue(SSMParameterName.VERIFIABLE_CREDENTIAL_ISSUER);
     }
 
     public String getVerifiableCredentialKmsSigningKeyId() {
-        return ssmProvider.get(
-                getParameterName(SSMParameterName.VERIFIABLE_CREDENTIAL_SIGNING_KEY_ID));
+        return getParameterValue(SSMParameterName.VERIFIABLE_CREDENTIAL_SIGNING_KEY_ID);
     }
 
     public String getSqsAuditEventQueueUrl() {
@@ -121,11 +218,63 @@ public class ConfigurationService {
     }
 
     public String getKmsEncryptionKeyId() {
-        return ssmProvider.get(
-                getParameterName(SSMParameterName.AUTH_REQUEST_KMS_ENCRYPTION_KEY_ID));
+        return getParameterValue(SSMParameterName.AUTH_REQUEST_KMS_ENCRYPTION_KEY_ID);
+    }
+
+    public long getParameterCacheHitCount() {
+        return parameterCache.getHitCount() + parametersByPathCache.getHitCount();
+    }
+
+    public long getParameterCacheMissCount() {
+        return parameterCache.getMissCount() + parametersByPathCache.getMissCount();
+    }
+
+    public long getParameterCacheRefreshCount() {
+        return parameterCache.getRefreshCount() + parametersByPathCache.getRefreshCount();
     }
 
-    private String getParameterName(SSMParameterName parameterName) {
-        return String.format(PARAMETER_NAME_FORMAT, parameterPrefix, parameterName.parameterName);
+    public long getParameterCacheStaleHitCount() {
+        return parameterCache.getStaleHitCount() + parametersByPathCache.getStaleHitCount();
+    }
+
+    private String getParameterValue(SSMParameterName parameterName) {
+        return getParameterValue(parameterName.parameterName);
+    }
+
+    private static Map<String, Map<String, String>> groupParametersByPath(
+            Map<String, String> parameters, String pathPrefix) {
+        // Mirror a recursive getMultiple for every directory at or below the prefix
+        Map<String, Map<String, String>> parametersByPath = new HashMap<>();
+        parameters.forEach(
+                (name, value) -> {
+                    if (!name.startsWith(pathPrefix + "/")) {
+                        return;
+                    }
+                    int separator = name.lastIndexOf('/');
+                    while (separator >= pathPrefix.length()) {
+                        String path = name.substring(0, separator);
+                        parametersByPath
+                                .computeIfAbsent(path, p -> new HashMap<>())
+                                .put(name.substring(separator + 1), value);
+                        separator = name.lastIndexOf('/', separator - 1);
+                    }
+                });
+        return parametersByPath;
+    }
+
+    // Cached maps are shared by every caller, so none of them can change what the others see
+    private static Map<String, String> toUnmodifiableMap(Map<String, String> parameters) {
+        return parameters == null ? null : Collections.unmodifiableMap(new HashMap<>(parameters));
+    }
+
+    private static String normalisePath(String path) {
+        String normalisedPath = path.trim();
+        while (normalisedPath.startsWith("/")) {
+            normalisedPath = normalisedPath.substring(1);
+        }
+        while (normalisedPath.endsWith("/")) {
+            normalisedPath = normalisedPath.substring(0, normalisedPath.length() - 1);
+        }
+        return normalisedPath;
     }
 }
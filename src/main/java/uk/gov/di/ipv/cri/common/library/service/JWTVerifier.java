@@ -2,10 +2,12 @@ package uk.gov.di.ipv.cri.common.library.service;
 
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSVerifier;
 import com.nimbusds.jose.crypto.ECDSAVerifier;
 import com.nimbusds.jose.crypto.RSASSAVerifier;
 import com.nimbusds.jose.crypto.impl.ECDSA;
 import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.proc.SecurityContext;
 import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWTClaimNames;
 import com.nimbusds.jwt.JWTClaimsSet;
@@ -15,6 +17,7 @@ import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
 import com.nimbusds.oauth2.sdk.id.ClientID;
 import uk.gov.di.ipv.cri.common.library.exception.ClientConfigurationException;
 import uk.gov.di.ipv.cri.common.library.exception.SessionValidationException;
+import uk.gov.di.ipv.cri.common.library.util.LruCache;
 
 import java.io.ByteArrayInputStream;
 import java.security.PublicKey;
@@ -24,57 +27,122 @@ import java.security.cert.CertificateFactory;
 import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-
-import static com.nimbusds.jose.JWSAlgorithm.ES256;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class JWTVerifier {
+    private static final int DEFAULT_PUBLIC_KEY_CACHE_SIZE = 50;
+    private static final String AUTHORIZATION_JWT = "authorization";
+    private static final String ACCESS_TOKEN_JWT = "accessToken";
+    private static final Set<String> AUTHORIZATION_JWT_REQUIRED_CLAIMS =
+            Set.of(JWTClaimNames.EXPIRATION_TIME, JWTClaimNames.SUBJECT, JWTClaimNames.NOT_BEFORE);
+    private static final Set<String> ACCESS_TOKEN_JWT_REQUIRED_CLAIMS =
+            Set.of(
+                    JWTClaimNames.EXPIRATION_TIME,
+                    JWTClaimNames.SUBJECT,
+                    JWTClaimNames.ISSUER,
+                    JWTClaimNames.AUDIENCE,
+                    JWTClaimNames.JWT_ID);
+    private final LruCache<String, JWSVerifier> verifierCache;
+    private final LruCache<List<String>, DefaultJWTClaimsVerifier<SecurityContext>>
+            claimsVerifierCache;
+    private final AtomicLong publicKeyParseNanos = new AtomicLong();
+
+    public JWTVerifier() {
+        this(
+                Optional.ofNullable(System.getenv("PUBLIC_KEY_CACHE_SIZE"))
+                        .map(Integer::parseInt)
+                        .orElse(DEFAULT_PUBLIC_KEY_CACHE_SIZE));
+    }
+
+    public JWTVerifier(int publicKeyCacheSize) {
+        this.verifierCache = new LruCache<>(publicKeyCacheSize);
+        this.claimsVerifierCache = new LruCache<>(publicKeyCacheSize);
+    }
 
     public void verifyAuthorizationJWT(
             Map<String, String> clientAuthenticationConfig, SignedJWT signedJWT)
             throws SessionValidationException, ClientConfigurationException {
-        verifyJWT(
-                clientAuthenticationConfig,
-                signedJWT,
-                Set.of(
-                        JWTClaimNames.EXPIRATION_TIME,
-                        JWTClaimNames.SUBJECT,
-                        JWTClaimNames.NOT_BEFORE),
-                new JWTClaimsSet.Builder()
-                        .issuer(clientAuthenticationConfig.get("issuer"))
-                        .audience(clientAuthenticationConfig.get("audience"))
-                        .build());
+        String issuer = clientAuthenticationConfig.get("issuer");
+        String audience = clientAuthenticationConfig.get("audience");
+        DefaultJWTClaimsVerifier<SecurityContext> claimsVerifier =
+                getClaimsVerifier(
+                        Arrays.asList(AUTHORIZATION_JWT, issuer, audience),
+                        () ->
+                                new JWTClaimsSet.Builder()
+                                        .issuer(issuer)
+                                        .audience(audience)
+                                        .build(),
+                        AUTHORIZATION_JWT_REQUIRED_CLAIMS);
+        verifyJWT(clientAuthenticationConfig, signedJWT, claimsVerifier);
     }
 
     public void verifyAccessTokenJWT(
             Map<String, String> clientAuthenticationConfig, SignedJWT signedJWT, ClientID clientID)
             throws SessionValidationException, ClientConfigurationException {
-        Set<String> requiredClaims =
-                Set.of(
-                        JWTClaimNames.EXPIRATION_TIME,
-                        JWTClaimNames.SUBJECT,
-                        JWTClaimNames.ISSUER,
-                        JWTClaimNames.AUDIENCE,
-                        JWTClaimNames.JWT_ID);
-        JWTClaimsSet expectedClaimValues =
-                new JWTClaimsSet.Builder()
-                        .issuer(clientID.getValue())
-                        .subject(clientID.getValue())
-                        .audience(clientAuthenticationConfig.get("audience"))
-                        .build();
-        verifyJWT(clientAuthenticationConfig, signedJWT, requiredClaims, expectedClaimValues);
+        String clientId = clientID.getValue();
+        String audience = clientAuthenticationConfig.get("audience");
+        DefaultJWTClaimsVerifier<SecurityContext> claimsVerifier =
+                getClaimsVerifier(
+                        Arrays.asList(ACCESS_TOKEN_JWT, clientId, audience),
+                        () ->
+                                new JWTClaimsSet.Builder()
+                                        .issuer(clientId)
+                                        .subject(clientId)
+                                        .audience(audience)
+                                        .build(),
+                        ACCESS_TOKEN_JWT_REQUIRED_CLAIMS);
+        verifyJWT(clientAuthenticationConfig, signedJWT, claimsVerifier);
+    }
+
+    public long getPublicKeyCacheHitCount() {
+        return verifierCache.getHitCount();
+    }
+
+    public long getPublicKeyCacheMissCount() {
+        return verifierCache.getMissCount();
+    }
+
+    public long getClaimsVerifierCacheHitCount() {
+        return claimsVerifierCache.getHitCount();
+    }
+
+    public long getClaimsVerifierCacheMissCount() {
+        return claimsVerifierCache.getMissCount();
+    }
+
+    public long getPublicKeyParseNanos() {
+        return publicKeyParseNanos.get();
+    }
+
+    private DefaultJWTClaimsVerifier<SecurityContext> getClaimsVerifier(
+            List<String> cacheKey,
+            Supplier<JWTClaimsSet> expectedClaimValues,
+            Set<String> requiredClaims) {
+        DefaultJWTClaimsVerifier<SecurityContext> claimsVerifier =
+                claimsVerifierCache.get(cacheKey);
+        if (claimsVerifier == null) {
+            claimsVerifier =
+                    new DefaultJWTClaimsVerifier<>(expectedClaimValues.get(), requiredClaims);
+            claimsVerifierCache.put(cacheKey, claimsVerifier);
+        }
+        return claimsVerifier;
     }
 
     private void verifyJWT(
             Map<String, String> clientAuthenticationConfig,
             SignedJWT signedJWT,
-            Set<String> requiredClaims,
-            JWTClaimsSet expectedClaimValues)
+            DefaultJWTClaimsVerifier<SecurityContext> claimsVerifier)
             throws SessionValidationException, ClientConfigurationException {
+        // Cheapest checks first, so rejected JWTs never reach the key material
         this.verifyJWTHeader(clientAuthenticationConfig, signedJWT);
-        this.verifyJWTClaimsSet(signedJWT, requiredClaims, expectedClaimValues);
+        this.verifyJWTClaimsSet(signedJWT, claimsVerifier);
         this.verifyJWTSignature(clientAuthenticationConfig, signedJWT);
     }
 
@@ -97,17 +165,12 @@ public class JWTVerifier {
             throws SessionValidationException, ClientConfigurationException {
         String publicCertificateToVerify = clientAuthenticationConfig.get("publicSigningJwkBase64");
         try {
-
-            SignedJWT concatSignatureJwt;
-            if (signatureIsDerFormat(signedJWT)) {
-                concatSignatureJwt = transcodeSignature(signedJWT);
-            } else {
-                concatSignatureJwt = signedJWT;
-            }
             JWSAlgorithm signingAlgorithm = signedJWT.getHeader().getAlgorithm();
-            PublicKey pubicKeyFromConfig =
-                    getPublicKeyFromConfig(publicCertificateToVerify, signingAlgorithm);
-            if (!verifySignature(concatSignatureJwt, pubicKeyFromConfig)) {
+            Base64URL concatSignature = getConcatSignature(signedJWT, signingAlgorithm);
+            JWSVerifier verifierFromConfig =
+                    getVerifierFromConfig(publicCertificateToVerify, signingAlgorithm);
+            if (!verifierFromConfig.verify(
+                    signedJWT.getHeader(), signedJWT.getSigningInput(), concatSignature)) {
                 throw new SessionValidationException("JWT signature verification failed");
             }
         } catch (JOSEException | ParseException e) {
@@ -117,35 +180,50 @@ public class JWTVerifier {
         }
     }
 
-    private boolean signatureIsDerFormat(SignedJWT signedJWT) throws JOSEException {
-        return signedJWT.getSignature().decode().length != ECDSA.getSignatureByteArrayLength(ES256);
-    }
+    private Base64URL getConcatSignature(SignedJWT signedJWT, JWSAlgorithm signingAlgorithm)
+            throws JOSEException {
+        Base64URL signature = signedJWT.getSignature();
+        if (!JWSAlgorithm.Family.EC.contains(signingAlgorithm)) {
+            return signature;
+        }
 
-    private SignedJWT transcodeSignature(SignedJWT signedJWT) throws JOSEException, ParseException {
-        Base64URL transcodedSignatureBase64 =
-                Base64URL.encode(
-                        ECDSA.transcodeSignatureToConcat(
-                                signedJWT.getSignature().decode(),
-                                ECDSA.getSignatureByteArrayLength(ES256)));
-        String[] jwtParts = signedJWT.serialize().split("\\.");
-        return SignedJWT.parse(
-                String.format("%s.%s.%s", jwtParts[0], jwtParts[1], transcodedSignatureBase64));
+        // Clients may send DER encoded ECDSA signatures, which need transcoding before verifying
+        byte[] decodedSignature = signature.decode();
+        int concatSignatureLength = ECDSA.getSignatureByteArrayLength(signingAlgorithm);
+        if (decodedSignature.length == concatSignatureLength) {
+            return signature;
+        }
+        return Base64URL.encode(
+                ECDSA.transcodeSignatureToConcat(decodedSignature, concatSignatureLength));
     }
 
     private void verifyJWTClaimsSet(
-            SignedJWT signedJWT, Set<String> requiredClaims, JWTClaimsSet expectedClaimValues)
+            SignedJWT signedJWT, DefaultJWTClaimsVerifier<SecurityContext> claimsVerifier)
             throws SessionValidationException {
 
         try {
-            new DefaultJWTClaimsVerifier<>(expectedClaimValues, requiredClaims)
-                    .verify(signedJWT.getJWTClaimsSet(), null);
+            claimsVerifier.verify(signedJWT.getJWTClaimsSet(), null);
         } catch (BadJWTException | ParseException e) {
             throw new SessionValidationException(e.getMessage(), e);
         }
     }
 
-    private PublicKey getPublicKeyFromConfig(
+    private JWSVerifier getVerifierFromConfig(
             String serialisedPublicKey, JWSAlgorithm signingAlgorithm)
+            throws CertificateException, ParseException, JOSEException,
+                    ClientConfigurationException {
+        String cacheKey = signingAlgorithm.getName() + ":" + serialisedPublicKey;
+        JWSVerifier verifier = verifierCache.get(cacheKey);
+        if (verifier == null) {
+            long parseStartNanos = System.nanoTime();
+            verifier = createVerifier(parsePublicKey(serialisedPublicKey, signingAlgorithm));
+            publicKeyParseNanos.addAndGet(System.nanoTime() - parseStartNanos);
+            verifierCache.put(cacheKey, verifier);
+        }
+        return verifier;
+    }
+
+    private PublicKey parsePublicKey(String serialisedPublicKey, JWSAlgorithm signingAlgorithm)
             throws CertificateException, ParseException, JOSEException {
         if (JWSAlgorithm.Family.RSA.contains(signingAlgorithm)) {
             byte[] binaryCertificate = Base64.getDecoder().decode(serialisedPublicKey);
@@ -162,14 +240,12 @@ public class JWTVerifier {
         }
     }
 
-    private boolean verifySignature(SignedJWT signedJWT, PublicKey clientPublicKey)
+    private JWSVerifier createVerifier(PublicKey clientPublicKey)
             throws JOSEException, ClientConfigurationException {
         if (clientPublicKey instanceof RSAPublicKey) {
-            RSASSAVerifier rsassaVerifier = new RSASSAVerifier((RSAPublicKey) clientPublicKey);
-            return signedJWT.verify(rsassaVerifier);
+            return new RSASSAVerifier((RSAPublicKey) clientPublicKey);
         } else if (clientPublicKey instanceof ECPublicKey) {
-            ECDSAVerifier ecdsaVerifier = new ECDSAVerifier((ECPublicKey) clientPublicKey);
-            return signedJWT.verify(ecdsaVerifier);
+            return new ECDSAVerifier((ECPublicKey) clientPublicKey);
         } else {
             throw new ClientConfigurationException(
                     new IllegalStateException(
@@ -0,0 +1,58 @@
+package uk.gov.di.ipv.cri.common.library.service;
+
+import uk.gov.di.ipv.cri.common.library.persistence.JtiStore;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class JtiReplayCache {
+    private static final int DEFAULT_MAXIMUM_LOCAL_ENTRIES = 10_000;
+    private final JtiStore jtiStore;
+    private final Clock clock;
+    private final int maximumLocalEntries;
+    private final Map<List<String>, Long> recentJtiExpiries = new ConcurrentHashMap<>();
+
+    public JtiReplayCache(JtiStore jtiStore) {
+        this(jtiStore, Clock.systemUTC(), DEFAULT_MAXIMUM_LOCAL_ENTRIES);
+    }
+
+    public JtiReplayCache(JtiStore jtiStore, Clock clock, int maximumLocalEntries) {
+        this.jtiStore = jtiStore;
+        this.clock = clock;
+        this.maximumLocalEntries = maximumLocalEntries;
+    }
+
+    // Records the client's jti as used until its expiry and reports whether it had already been
+    // used by that client
+    public boolean isReplay(String clientId, String jti, long expiryEpochSecond) {
+        long now = clock.instant().getEpochSecond();
+        List<String> clientJti = List.of(clientId, jti);
+        Long knownExpiry = recentJtiExpiries.get(clientJti);
+        if (knownExpiry != null && knownExpiry >= now) {
+            return true;
+        }
+
+        boolean firstUse = jtiStore.recordIfAbsent(clientId, jti, expiryEpochSecond);
+        remember(clientJti, expiryEpochSecond, now);
+        return !firstUse;
+    }
+
+    private void remember(List<String> clientJti, long expiryEpochSecond, long now) {
+        if (recentJtiExpiries.size() >= maximumLocalEntries) {
+            evict(now);
+        }
+        recentJtiExpiries.put(clientJti, expiryEpochSecond);
+    }
+
+    // Only runs once the map is full, so the sweep cost is spread over maximumLocalEntries calls
+    private synchronized void evict(long now) {
+        if (recentJtiExpiries.size() >= maximumLocalEntries) {
+            recentJtiExpiries.values().removeIf(expiry -> expiry < now);
+            if (recentJtiExpiries.size() >= maximumLocalEntries) {
+                recentJtiExpiries.clear();
+            }
+        }
+    }
+}
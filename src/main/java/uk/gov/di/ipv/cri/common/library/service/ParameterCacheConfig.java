@@ -0,0 +1,118 @@
+package uk.gov.di.ipv.cri.common.library.service;
+
+import uk.gov.di.ipv.cri.common.library.util.TtlCache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+public class ParameterCacheConfig {
+    private static final long DEFAULT_PARAMETER_CACHE_TTL_IN_SECS = 300L;
+
+    private final Duration defaultTtl;
+    private final Map<String, Duration> ttls;
+    private final Duration refreshAhead;
+    private final Duration maxStaleness;
+    private final Executor refreshExecutor;
+
+    private ParameterCacheConfig(Builder builder) {
+        this.defaultTtl = builder.defaultTtl;
+        this.ttls = Map.copyOf(builder.ttls);
+        this.refreshAhead = builder.refreshAhead;
+        this.maxStaleness = builder.maxStaleness;
+        this.refreshExecutor = builder.refreshExecutor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Every parameter is read from SSM on each call
+    public static ParameterCacheConfig disabled() {
+        return builder().build();
+    }
+
+    static ParameterCacheConfig fromEnvironment() {
+        return builder()
+                .defaultTtl(
+                        getDurationFromEnv(
+                                "PARAMETER_CACHE_TTL", DEFAULT_PARAMETER_CACHE_TTL_IN_SECS))
+                .refreshAhead(getDurationFromEnv("PARAMETER_CACHE_REFRESH_AHEAD", 0L))
+                .maxStaleness(getDurationFromEnv("PARAMETER_CACHE_MAX_STALENESS", 0L))
+                .build();
+    }
+
+    // Parameter names are matched as passed to getParameterValue
+    public Duration getTtl(String parameterName) {
+        return ttls.getOrDefault(parameterName, defaultTtl);
+    }
+
+    // Paths are cached without their leading slash, but may be configured with it
+    public Duration getPathTtl(String path) {
+        return ttls.getOrDefault(path, ttls.getOrDefault("/" + path, defaultTtl));
+    }
+
+    public Duration getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public Duration getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public Executor getRefreshExecutor() {
+        return refreshExecutor;
+    }
+
+    private static Duration getDurationFromEnv(String envVarName, long defaultSeconds) {
+        return Duration.ofSeconds(
+                Optional.ofNullable(System.getenv(envVarName))
+                        .map(Long::parseLong)
+                        .orElse(defaultSeconds));
+    }
+
+    public static class Builder {
+        private Duration defaultTtl = Duration.ZERO;
+        private final Map<String, Duration> ttls = new HashMap<>();
+        private Duration refreshAhead = Duration.ZERO;
+        private Duration maxStaleness = Duration.ZERO;
+        private Executor refreshExecutor = TtlCache.defaultRefreshExecutor();
+
+        private Builder() {}
+
+        public Builder defaultTtl(Duration defaultTtl) {
+            this.defaultTtl = Objects.requireNonNull(defaultTtl, "defaultTtl must not be null");
+            return this;
+        }
+
+        public Builder ttl(String parameterName, Duration ttl) {
+            this.ttls.put(parameterName, Objects.requireNonNull(ttl, "ttl must not be null"));
+            return this;
+        }
+
+        public Builder refreshAhead(Duration refreshAhead) {
+            this.refreshAhead =
+                    Objects.requireNonNull(refreshAhead, "refreshAhead must not be null");
+            return this;
+        }
+
+        public Builder maxStaleness(Duration maxStaleness) {
+            this.maxStaleness =
+                    Objects.requireNonNull(maxStaleness, "maxStaleness must not be null");
+            return this;
+        }
+
+        public Builder refreshExecutor(Executor refreshExecutor) {
+            this.refreshExecutor =
+                    Objects.requireNonNull(refreshExecutor, "refreshExecutor must not be null");
+            return this;
+        }
+
+        public ParameterCacheConfig build() {
+            return new ParameterCacheConfig(this);
+        }
+    }
+}
@@ -4,56 +4,91 @@ import uk.gov.di.ipv.cri.common.library.annotations.ExcludeFromGeneratedCoverage
 import uk.gov.di.ipv.cri.common.library.domain.personidentity.PersonIdentity;
 import uk.gov.di.ipv.cri.common.library.domain.personidentity.PersonIdentityDetailed;
 import uk.gov.di.ipv.cri.common.library.domain.personidentity.SharedClaims;
+import uk.gov.di.ipv.cri.common.library.persistence.AsyncDataStore;
 import uk.gov.di.ipv.cri.common.library.persistence.DataStore;
 import uk.gov.di.ipv.cri.common.library.persistence.DynamoDbEnhancedClientFactory;
+import uk.gov.di.ipv.cri.common.library.persistence.item.ItemTableSchemas;
 import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityItem;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 public class PersonIdentityService {
     private static final String PERSON_IDENTITY_TABLE_PARAM_NAME = "PersonIdentityTableName";
     private final PersonIdentityMapper personIdentityMapper;
     private final ConfigurationService configurationService;
     private final DataStore<PersonIdentityItem> personIdentityDataStore;
+    private final Supplier<AsyncDataStore<PersonIdentityItem>> asyncDataStoreFactory;
+    private volatile AsyncDataStore<PersonIdentityItem> asyncPersonIdentityDataStore;
 
     @ExcludeFromGeneratedCoverageReport
     public PersonIdentityService() {
-        this.configurationService = new ConfigurationService();
-        this.personIdentityMapper = new PersonIdentityMapper();
-        this.personIdentityDataStore =
-                new DataStore<>(
-                        configurationService.getParameterValue(PERSON_IDENTITY_TABLE_PARAM_NAME),
-                        PersonIdentityItem.class,
-                        new DynamoDbEnhancedClientFactory().getClient());
+        this(new ConfigurationService());
     }
 
+    // The AsyncDataStore, and the async client's event loop, are only created on first async call
     @ExcludeFromGeneratedCoverageReport
     public PersonIdentityService(ConfigurationService configurationService) {
-        this(
-                new PersonIdentityMapper(),
-                configurationService,
+        String tableName = configurationService.getParameterValue(PERSON_IDENTITY_TABLE_PARAM_NAME);
+        DynamoDbEnhancedClientFactory clientFactory = new DynamoDbEnhancedClientFactory();
+        this.personIdentityMapper = new PersonIdentityMapper();
+        this.configurationService = configurationService;
+        this.personIdentityDataStore =
                 new DataStore<>(
-                        configurationService.getParameterValue(PERSON_IDENTITY_TABLE_PARAM_NAME),
-                        PersonIdentityItem.class,
-                        new DynamoDbEnhancedClientFactory().getClient()));
+                        tableName,
+                        ItemTableSchemas.PERSON_IDENTITY_ITEM,
+                        clientFactory.getClient());
+        this.asyncDataStoreFactory =
+                () ->
+                        new AsyncDataStore<>(
+                                tableName,
+                                ItemTableSchemas.PERSON_IDENTITY_ITEM,
+                                clientFactory.getAsyncClient());
     }
 
     public PersonIdentityService(
             PersonIdentityMapper personIdentityMapper,
             ConfigurationService configurationService,
             DataStore<PersonIdentityItem> personIdentityDataStore) {
+        this(personIdentityMapper, configurationService, personIdentityDataStore, null);
+    }
+
+    public PersonIdentityService(
+            PersonIdentityMapper personIdentityMapper,
+            ConfigurationService configurationService,
+            DataStore<PersonIdentityItem> personIdentityDataStore,
+            AsyncDataStore<PersonIdentityItem> asyncPersonIdentityDataStore) {
         this.personIdentityMapper = personIdentityMapper;
         this.configurationService = configurationService;
         this.personIdentityDataStore = personIdentityDataStore;
+        this.asyncDataStoreFactory = null;
+        this.asyncPersonIdentityDataStore = asyncPersonIdentityDataStore;
     }
 
     public void savePersonIdentity(UUID sessionId, SharedClaims sharedClaims) {
-        PersonIdentityItem personIdentityItem =
-                personIdentityMapper.mapToPersonIdentityItem(sharedClaims);
-        personIdentityItem.setSessionId(sessionId);
-        personIdentityItem.setExpiryDate(configurationService.getSessionExpirationEpoch());
+        this.personIdentityDataStore.create(createPersonIdentityItem(sessionId, sharedClaims));
+    }
+
+    public CompletableFuture<Void> savePersonIdentityAsync(
+            UUID sessionId, SharedClaims sharedClaims) {
+        return getAsyncPersonIdentityDataStore()
+                .create(createPersonIdentityItem(sessionId, sharedClaims));
+    }
+
+    public void savePersonIdentities(Map<UUID, SharedClaims> sharedClaimsBySessionId) {
+        List<PersonIdentityItem> personIdentityItems =
+                new ArrayList<>(sharedClaimsBySessionId.size());
+        sharedClaimsBySessionId.forEach(
+                (sessionId, sharedClaims) ->
+                        personIdentityItems.add(createPersonIdentityItem(sessionId, sharedClaims)));
 
-        this.personIdentityDataStore.create(personIdentityItem);
+        this.personIdentityDataStore.createAll(personIdentityItems);
     }
 
     public PersonIdentity getPersonIdentity(UUID sessionId) {
@@ -61,17 +96,71 @@ public class PersonIdentityService {
         return personIdentityMapper.mapToPersonIdentity(personIdentityItem);
     }
 
+    public CompletableFuture<PersonIdentity> getPersonIdentityAsync(UUID sessionId) {
+        return getAsyncPersonIdentityDataStore()
+                .getItem(String.valueOf(sessionId))
+                .thenApply(personIdentityMapper::mapToPersonIdentity);
+    }
+
+    // Sessions without a stored person identity are absent from the returned map
+    public Map<UUID, PersonIdentity> getPersonIdentities(Collection<UUID> sessionIds) {
+        List<String> partitionValues = new ArrayList<>(sessionIds.size());
+        sessionIds.forEach(sessionId -> partitionValues.add(String.valueOf(sessionId)));
+
+        Map<UUID, PersonIdentity> personIdentities = new HashMap<>();
+        for (PersonIdentityItem personIdentityItem :
+                this.personIdentityDataStore.getItems(partitionValues)) {
+            personIdentities.put(
+                    personIdentityItem.getSessionId(),
+                    personIdentityMapper.mapToPersonIdentity(personIdentityItem));
+        }
+        return personIdentities;
+    }
+
     public PersonIdentityDetailed getPersonIdentityDetailed(UUID sessionId) {
         PersonIdentityItem personIdentityItem = getById(sessionId);
         return personIdentityMapper.mapToPersonIdentityDetailed(personIdentityItem);
     }
 
+    public CompletableFuture<PersonIdentityDetailed> getPersonIdentityDetailedAsync(
+            UUID sessionId) {
+        return getAsyncPersonIdentityDataStore()
+                .getItem(String.valueOf(sessionId))
+                .thenApply(personIdentityMapper::mapToPersonIdentityDetailed);
+    }
+
     public PersonIdentity convertToPersonIdentitySummary(
             PersonIdentityDetailed personIdentityDetailed) {
         return personIdentityMapper.mapToPersonIdentity(personIdentityDetailed);
     }
 
+    private PersonIdentityItem createPersonIdentityItem(UUID sessionId, SharedClaims sharedClaims) {
+        PersonIdentityItem personIdentityItem =
+                personIdentityMapper.mapToPersonIdentityItem(sharedClaims);
+        personIdentityItem.setSessionId(sessionId);
+        personIdentityItem.setExpiryDate(configurationService.getSessionExpirationEpoch());
+        return personIdentityItem;
+    }
+
     private PersonIdentityItem getById(UUID sessionId) {
         return this.personIdentityDataStore.getItem(String.valueOf(sessionId));
     }
+
+    private AsyncDataStore<PersonIdentityItem> getAsyncPersonIdentityDataStore() {
+        AsyncDataStore<PersonIdentityItem> store = asyncPersonIdentityDataStore;
+        if (store == null && asyncDataStoreFactory != null) {
+            synchronized (this) {
+                store = asyncPersonIdentityDataStore;
+                if (store == null) {
+                    store = asyncDataStoreFactory.get();
+                    asyncPersonIdentityDataStore = store;
+                }
+            }
+        }
+        if (store == null) {
+            throw new IllegalStateException(
+                    "PersonIdentityService has no AsyncDataStore configured");
+        }
+        return store;
+    }
 }
@@ -0,0 +1,141 @@
+package uk.gov.di.ipv.cri.common.library.service;
+
+import uk.gov.di.ipv.cri.common.library.persistence.item.SessionItem;
+import uk.gov.di.ipv.cri.common.library.util.LruCache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+public class SessionCache {
+    private final LruCache<String, CachedSession> sessions;
+    private final LruCache<String, String> sessionIdsByAuthorizationCode;
+    private final LruCache<String, String> sessionIdsByAccessToken;
+    private final Duration ttl;
+    private final Clock clock;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public SessionCache(int maximumSize, Duration ttl, Clock clock) {
+        if (ttl.isZero() || ttl.isNegative()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.sessions = new LruCache<>(maximumSize);
+        this.sessionIdsByAuthorizationCode = new LruCache<>(maximumSize);
+        this.sessionIdsByAccessToken = new LruCache<>(maximumSize);
+        this.ttl = ttl;
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+    }
+
+    // Every call returns a new item, so callers can change it without touching the cached copy
+    public SessionItem get(String sessionId) {
+        SessionItem sessionItem = getUnlessExpired(sessionId);
+        if (sessionItem == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return sessionItem;
+    }
+
+    public SessionItem getByAuthorizationCode(String authorizationCode) {
+        return getBySecondaryKey(
+                sessionIdsByAuthorizationCode,
+                authorizationCode,
+                sessionItem -> authorizationCode.equals(sessionItem.getAuthorizationCode()));
+    }
+
+    public SessionItem getByAccessToken(String accessToken) {
+        return getBySecondaryKey(
+                sessionIdsByAccessToken,
+                accessToken,
+                sessionItem -> accessToken.equals(sessionItem.getAccessToken()));
+    }
+
+    // Entries expire after the TTL or when the session itself expires, whichever is sooner
+    public void put(SessionItem sessionItem) {
+        Instant now = clock.instant();
+        Instant cachedUntil = now.plus(ttl);
+        Instant sessionExpiry = Instant.ofEpochSecond(sessionItem.getExpiryDate());
+        if (sessionExpiry.isBefore(cachedUntil)) {
+            cachedUntil = sessionExpiry;
+        }
+        if (!now.isBefore(cachedUntil)) {
+            return;
+        }
+
+        String sessionId = String.valueOf(sessionItem.getSessionId());
+        sessions.put(sessionId, new CachedSession(new SessionItem(sessionItem), cachedUntil));
+        if (sessionItem.getAuthorizationCode() != null) {
+            sessionIdsByAuthorizationCode.put(sessionItem.getAuthorizationCode(), sessionId);
+        }
+        if (sessionItem.getAccessToken() != null) {
+            sessionIdsByAccessToken.put(sessionItem.getAccessToken(), sessionId);
+        }
+    }
+
+    // Secondary keys are checked against the cached item on read, so only the item is removed
+    public void invalidate(String sessionId) {
+        sessions.invalidate(sessionId);
+    }
+
+    public void invalidateAll() {
+        sessions.invalidateAll();
+        sessionIdsByAuthorizationCode.invalidateAll();
+        sessionIdsByAccessToken.invalidateAll();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return sessions.getEvictionCount();
+    }
+
+    private SessionItem getBySecondaryKey(
+            LruCache<String, String> sessionIds, String key, Predicate<SessionItem> stillMatches) {
+        String sessionId = sessionIds.get(key);
+        SessionItem sessionItem = sessionId == null ? null : getUnlessExpired(sessionId);
+        if (sessionItem == null || !stillMatches.test(sessionItem)) {
+            sessionIds.invalidate(key);
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return sessionItem;
+    }
+
+    private SessionItem getUnlessExpired(String sessionId) {
+        CachedSession cachedSession = sessions.get(sessionId);
+        if (cachedSession == null) {
+            return null;
+        }
+        if (!clock.instant().isBefore(cachedSession.cachedUntil)) {
+            sessions.invalidate(sessionId);
+            return null;
+        }
+        return new SessionItem(cachedSession.sessionItem);
+    }
+
+    private static class CachedSession {
+        private final SessionItem sessionItem;
+        private final Instant cachedUntil;
+
+        CachedSession(SessionItem sessionItem, Instant cachedUntil) {
+            this.sessionItem = sessionItem;
+            this.cachedUntil = cachedUntil;
+        }
+    }
+}
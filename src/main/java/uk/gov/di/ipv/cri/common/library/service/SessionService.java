@@ -1,78 +1,146 @@
 package uk.gov.di.ipv.cri.common.library.service;
 
 import com.nimbusds.oauth2.sdk.token.AccessToken;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import uk.gov.di.ipv.cri.common.library.annotations.ExcludeFromGeneratedCoverageReport;
 import uk.gov.di.ipv.cri.common.library.domain.SessionRequest;
 import uk.gov.di.ipv.cri.common.library.exception.AccessTokenExpiredException;
 import uk.gov.di.ipv.cri.common.library.exception.AuthorizationCodeExpiredException;
 import uk.gov.di.ipv.cri.common.library.exception.SessionExpiredException;
 import uk.gov.di.ipv.cri.common.library.exception.SessionNotFoundException;
+import uk.gov.di.ipv.cri.common.library.persistence.AsyncDataStore;
 import uk.gov.di.ipv.cri.common.library.persistence.DataStore;
 import uk.gov.di.ipv.cri.common.library.persistence.DynamoDbEnhancedClientFactory;
+import uk.gov.di.ipv.cri.common.library.persistence.item.ItemTableSchemas;
 import uk.gov.di.ipv.cri.common.library.persistence.item.SessionItem;
 import uk.gov.di.ipv.cri.common.library.util.ListUtil;
 
 import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class SessionService {
     private static final String SESSION_TABLE_PARAM_NAME = "SessionTableName";
     private final ConfigurationService configurationService;
     private final DataStore<SessionItem> dataStore;
+    private final Supplier<AsyncDataStore<SessionItem>> asyncDataStoreFactory;
+    private volatile AsyncDataStore<SessionItem> asyncDataStore;
     private final ListUtil listUtil;
     private final Clock clock;
+    private final SessionCache sessionCache;
+    private final AtomicLong sessionCacheReadsSaved = new AtomicLong();
 
     @ExcludeFromGeneratedCoverageReport
     public SessionService() {
-        this.configurationService = new ConfigurationService();
+        this(new ConfigurationService());
+    }
+
+    // The AsyncDataStore, and the async client's event loop, are only created on first async call
+    @ExcludeFromGeneratedCoverageReport
+    public SessionService(ConfigurationService configurationService) {
+        String tableName = configurationService.getParameterValue(SESSION_TABLE_PARAM_NAME);
+        DynamoDbEnhancedClientFactory clientFactory = new DynamoDbEnhancedClientFactory();
         this.dataStore =
                 new DataStore<>(
-                        configurationService.getParameterValue(SESSION_TABLE_PARAM_NAME),
-                        SessionItem.class,
-                        new DynamoDbEnhancedClientFactory().getClient());
+                        tableName,
+                        ItemTableSchemas.SESSION_ITEM,
+                        clientFactory.getClient(),
+                        clientFactory.getDynamoDbClient());
+        this.asyncDataStoreFactory =
+                () ->
+                        new AsyncDataStore<>(
+                                tableName,
+                                ItemTableSchemas.SESSION_ITEM,
+                                clientFactory.getAsyncClient(),
+                                clientFactory.getDynamoDbAsyncClient());
+        this.configurationService = configurationService;
         this.clock = Clock.systemUTC();
         this.listUtil = new ListUtil();
+        this.sessionCache = createSessionCache(configurationService);
     }
 
-    @ExcludeFromGeneratedCoverageReport
-    public SessionService(ConfigurationService configurationService) {
-        this(
-                new DataStore<>(
-                        configurationService.getParameterValue(SESSION_TABLE_PARAM_NAME),
-                        SessionItem.class,
-                        new DynamoDbEnhancedClientFactory().getClient()),
-                configurationService,
-                Clock.systemUTC(),
-                new ListUtil());
+    public SessionService(
+            DataStore<SessionItem> dataStore,
+            ConfigurationService configurationService,
+            Clock clock,
+            ListUtil listUtil) {
+        this(dataStore, null, configurationService, clock, listUtil);
     }
 
     public SessionService(
             DataStore<SessionItem> dataStore,
+            AsyncDataStore<SessionItem> asyncDataStore,
             ConfigurationService configurationService,
             Clock clock,
             ListUtil listUtil) {
+        this(dataStore, asyncDataStore, configurationService, clock, listUtil, null);
+    }
+
+    // A null sessionCache reads every session from DynamoDB
+    public SessionService(
+            DataStore<SessionItem> dataStore,
+            AsyncDataStore<SessionItem> asyncDataStore,
+            ConfigurationService configurationService,
+            Clock clock,
+            ListUtil listUtil,
+            SessionCache sessionCache) {
         this.dataStore = dataStore;
+        this.asyncDataStoreFactory = null;
+        this.asyncDataStore = asyncDataStore;
         this.configurationService = configurationService;
         this.clock = clock;
         this.listUtil = listUtil;
+        this.sessionCache = sessionCache;
     }
 
     public UUID saveSession(SessionRequest sessionRequest) {
-        SessionItem sessionItem = new SessionItem();
-        sessionItem.setCreatedDate(clock.instant().getEpochSecond());
-        sessionItem.setExpiryDate(configurationService.getSessionExpirationEpoch());
-        sessionItem.setState(sessionRequest.getState());
-        sessionItem.setClientId(sessionRequest.getClientId());
-        sessionItem.setRedirectUri(sessionRequest.getRedirectUri());
-        sessionItem.setSubject(sessionRequest.getSubject());
+        SessionItem sessionItem = createSessionItem(sessionRequest);
 
         dataStore.create(sessionItem);
 
         return sessionItem.getSessionId();
     }
 
+    public CompletableFuture<UUID> saveSessionAsync(SessionRequest sessionRequest) {
+        SessionItem sessionItem = createSessionItem(sessionRequest);
+
+        return getAsyncDataStore()
+                .create(sessionItem)
+                .thenApply(ignored -> sessionItem.getSessionId());
+    }
+
+    // Items read through this service track their changes, so only those attributes are written.
+    // A session that no longer exists is written in full, as it was before partial updates.
     public void updateSession(SessionItem sessionItem) {
-        dataStore.update(sessionItem);
+        // Invalidated again after the write, in case a read re-cached the old item meanwhile
+        invalidateCachedSession(sessionItem.getSessionId());
+        Optional<Set<String>> changedAttributeNames = sessionItem.getChangedAttributeNames();
+        if (changedAttributeNames.isEmpty()
+                || !dataStore.update(sessionItem, changedAttributeNames.get())) {
+            dataStore.update(sessionItem);
+        }
+        sessionItem.resetChangedAttributes();
+        invalidateCachedSession(sessionItem.getSessionId());
+    }
+
+    public CompletableFuture<SessionItem> updateSessionAsync(SessionItem sessionItem) {
+        UUID sessionId = sessionItem.getSessionId();
+        // Invalidated again on completion, in case a read re-cached the old item meanwhile
+        invalidateCachedSession(sessionId);
+        return writeSessionAsync(sessionItem)
+                .whenComplete(
+                        (updatedItem, error) -> {
+                            if (error == null) {
+                                sessionItem.resetChangedAttributes();
+                            }
+                            invalidateCachedSession(sessionId);
+                        });
     }
 
     public void createAuthorizationCode(SessionItem session) {
@@ -82,47 +150,127 @@ public class SessionService {
         updateSession(session);
     }
 
-    public SessionItem validateSessionId(String sessionId)
-            throws SessionNotFoundException, SessionExpiredException {
+    // Swaps the authorization code for the access token in one conditional write, so a code can
+    // only be redeemed once even when requests race
+    public SessionItem redeemAuthorizationCode(
+            UUID sessionId, String authorizationCode, AccessToken accessToken)
+            throws AuthorizationCodeExpiredException {
+        long accessTokenExpiryDate = configurationService.getBearerAccessTokenExpirationEpoch();
+        Expression updateExpression =
+                Expression.builder()
+                        .expression(
+                                "SET #accessToken = :accessToken, "
+                                        + "#accessTokenExpiryDate = :accessTokenExpiryDate "
+                                        + "REMOVE #authorizationCode")
+                        .putExpressionName("#accessToken", "accessToken")
+                        .putExpressionName("#accessTokenExpiryDate", "accessTokenExpiryDate")
+                        .putExpressionName("#authorizationCode", "authorizationCode")
+                        .putExpressionValue(
+                                ":accessToken",
+                                AttributeValue.builder()
+                                        .s(accessToken.toAuthorizationHeader())
+                                        .build())
+                        .putExpressionValue(
+                                ":accessTokenExpiryDate",
+                                AttributeValue.builder()
+                                        .n(String.valueOf(accessTokenExpiryDate))
+                                        .build())
+                        .build();
+        Expression conditionExpression =
+                Expression.builder()
+                        .expression(
+                                "#authorizationCode = :authorizationCode "
+                                        + "AND #authorizationCodeExpiryDate >= :now")
+                        .putExpressionName("#authorizationCode", "authorizationCode")
+                        .putExpressionName(
+                                "#authorizationCodeExpiryDate", "authorizationCodeExpiryDate")
+                        .putExpressionValue(
+                                ":authorizationCode",
+                                AttributeValue.builder().s(authorizationCode).build())
+                        .putExpressionValue(
+                                ":now",
+                                AttributeValue.builder()
+                                        .n(String.valueOf(clock.instant().getEpochSecond()))
+                                        .build())
+                        .build();
 
-        SessionItem sessionItem = dataStore.getItem(sessionId);
+        invalidateCachedSession(sessionId);
+        SessionItem sessionItem =
+                dataStore.update(String.valueOf(sessionId), updateExpression, conditionExpression);
+        invalidateCachedSession(sessionId);
         if (sessionItem == null) {
-            throw new SessionNotFoundException("session not found");
+            throw new AuthorizationCodeExpiredException(
+                    "authorization code expired or already redeemed");
         }
+        sessionItem.resetChangedAttributes();
+        return sessionItem;
+    }
 
-        if (sessionItem.getExpiryDate() < clock.instant().getEpochSecond()) {
-            throw new SessionExpiredException("session expired");
-        }
+    public SessionItem validateSessionId(String sessionId)
+            throws SessionNotFoundException, SessionExpiredException {
+        return checkSessionIsValid(readSession(sessionId));
+    }
 
-        return sessionItem;
+    public CompletableFuture<SessionItem> validateSessionIdAsync(String sessionId) {
+        return readSessionAsync(sessionId).thenApply(this::checkSessionIsValid);
     }
 
     public SessionItem getSession(String sessionId) {
-        return dataStore.getItem(sessionId);
+        return trackChanges(readSession(sessionId));
+    }
+
+    public CompletableFuture<SessionItem> getSessionAsync(String sessionId) {
+        return readSessionAsync(sessionId).thenApply(this::trackChanges);
+    }
+
+    public long getSessionCacheHitCount() {
+        return sessionCache == null ? 0L : sessionCache.getHitCount();
+    }
+
+    public long getSessionCacheMissCount() {
+        return sessionCache == null ? 0L : sessionCache.getMissCount();
+    }
+
+    // Counts the GetItem and index Query calls that cache hits made unnecessary
+    public long getSessionCacheReadsSavedCount() {
+        return sessionCacheReadsSaved.get();
     }
 
     public SessionItem getSessionByAccessToken(AccessToken accessToken)
             throws SessionExpiredException, AccessTokenExpiredException, SessionNotFoundException {
-        SessionItem sessionItem;
-
-        try {
-            sessionItem =
-                    listUtil.getOneItemOrThrowError(
-                            dataStore.getItemByIndex(
-                                    SessionItem.ACCESS_TOKEN_INDEX,
-                                    accessToken.toAuthorizationHeader()));
-        } catch (IllegalArgumentException e) {
-            if (e.getMessage().contains("No items found")) {
-                throw new SessionNotFoundException("no session found with that access token");
+        String serialisedAccessToken = accessToken.toAuthorizationHeader();
+        boolean indexProjectionAll = configurationService.isAccessTokenIndexProjectionAll();
+        SessionItem sessionItem =
+                sessionCache == null ? null : sessionCache.getByAccessToken(serialisedAccessToken);
+
+        if (sessionItem != null) {
+            sessionCacheReadsSaved.addAndGet(indexProjectionAll ? 1 : 2);
+            checkSessionIsValid(sessionItem);
+        } else {
+            try {
+                sessionItem =
+                        listUtil.getOneItemOrThrowError(
+                                dataStore.streamItemsByIndex(
+                                        SessionItem.ACCESS_TOKEN_INDEX, serialisedAccessToken, 2));
+            } catch (IllegalArgumentException e) {
+                if (e.getMessage().contains("No items found")) {
+                    throw new SessionNotFoundException("no session found with that access token");
+                } else {
+                    throw new SessionNotFoundException(
+                            "more than one session found with that access token");
+                }
+            }
+
+            if (indexProjectionAll) {
+                // The index already holds the whole item, so a second read is not needed. Index
+                // reads are eventually consistent, so only base table reads are cached.
+                checkSessionIsValid(sessionItem);
             } else {
-                throw new SessionNotFoundException(
-                        "more than one session found with that access token");
+                // Re-fetch our session directly to avoid problems with projections
+                sessionItem = validateSessionId(String.valueOf(sessionItem.getSessionId()));
             }
         }
 
-        // Re-fetch our session directly to avoid problems with projections
-        sessionItem = validateSessionId(String.valueOf(sessionItem.getSessionId()));
-
         if (sessionItem.getAccessTokenExpiryDate() < clock.instant().getEpochSecond()) {
             throw new AccessTokenExpiredException("access code expired");
         }
@@ -133,29 +281,146 @@ public class SessionService {
     public SessionItem getSessionByAuthorisationCode(String authCode)
             throws SessionExpiredException, AuthorizationCodeExpiredException,
                     SessionNotFoundException {
-        SessionItem sessionItem;
-
-        try {
-            sessionItem =
-                    listUtil.getOneItemOrThrowError(
-                            dataStore.getItemByIndex(
-                                    SessionItem.AUTHORIZATION_CODE_INDEX, authCode));
-        } catch (IllegalArgumentException e) {
-            if (e.getMessage().contains("No items found")) {
-                throw new SessionNotFoundException("no session found with that authorization code");
+        boolean indexProjectionAll = configurationService.isAuthorizationCodeIndexProjectionAll();
+        SessionItem sessionItem =
+                sessionCache == null ? null : sessionCache.getByAuthorizationCode(authCode);
+
+        if (sessionItem != null) {
+            sessionCacheReadsSaved.addAndGet(indexProjectionAll ? 1 : 2);
+            checkSessionIsValid(sessionItem);
+        } else {
+            try {
+                sessionItem =
+                        listUtil.getOneItemOrThrowError(
+                                dataStore.streamItemsByIndex(
+                                        SessionItem.AUTHORIZATION_CODE_INDEX, authCode, 2));
+            } catch (IllegalArgumentException e) {
+                if (e.getMessage().contains("No items found")) {
+                    throw new SessionNotFoundException(
+                            "no session found with that authorization code");
+                } else {
+                    throw new SessionNotFoundException(
+                            "more than one session found with that authorization code");
+                }
+            }
+
+            if (indexProjectionAll) {
+                // The index already holds the whole item, so a second read is not needed. Index
+                // reads are eventually consistent, so only base table reads are cached.
+                checkSessionIsValid(sessionItem);
             } else {
-                throw new SessionNotFoundException(
-                        "more than one session found with that authorization code");
+                // Re-fetch our session directly to avoid problems with projections
+                sessionItem = validateSessionId(String.valueOf(sessionItem.getSessionId()));
             }
         }
 
-        // Re-fetch our session directly to avoid problems with projections
-        sessionItem = validateSessionId(String.valueOf(sessionItem.getSessionId()));
-
         if (sessionItem.getAuthorizationCodeExpiryDate() < clock.instant().getEpochSecond()) {
             throw new AuthorizationCodeExpiredException("authorization code expired");
         }
 
         return sessionItem;
     }
+
+    private SessionItem createSessionItem(SessionRequest sessionRequest) {
+        SessionItem sessionItem = new SessionItem();
+        sessionItem.setCreatedDate(clock.instant().getEpochSecond());
+        sessionItem.setExpiryDate(configurationService.getSessionExpirationEpoch());
+        sessionItem.setState(sessionRequest.getState());
+        sessionItem.setClientId(sessionRequest.getClientId());
+        sessionItem.setRedirectUri(sessionRequest.getRedirectUri());
+        sessionItem.setSubject(sessionRequest.getSubject());
+        return sessionItem;
+    }
+
+    private SessionItem checkSessionIsValid(SessionItem sessionItem) {
+        if (sessionItem == null) {
+            throw new SessionNotFoundException("session not found");
+        }
+
+        if (sessionItem.getExpiryDate() < clock.instant().getEpochSecond()) {
+            throw new SessionExpiredException("session expired");
+        }
+
+        return trackChanges(sessionItem);
+    }
+
+    private SessionItem readSession(String sessionId) {
+        SessionItem sessionItem = sessionCache == null ? null : sessionCache.get(sessionId);
+        if (sessionItem != null) {
+            sessionCacheReadsSaved.incrementAndGet();
+            return sessionItem;
+        }
+        return cacheSession(dataStore.getItem(sessionId));
+    }
+
+    private CompletableFuture<SessionItem> readSessionAsync(String sessionId) {
+        SessionItem sessionItem = sessionCache == null ? null : sessionCache.get(sessionId);
+        if (sessionItem != null) {
+            sessionCacheReadsSaved.incrementAndGet();
+            return CompletableFuture.completedFuture(sessionItem);
+        }
+        return getAsyncDataStore().getItem(sessionId).thenApply(this::cacheSession);
+    }
+
+    private CompletableFuture<SessionItem> writeSessionAsync(SessionItem sessionItem) {
+        Optional<Set<String>> changedAttributeNames = sessionItem.getChangedAttributeNames();
+        if (changedAttributeNames.isEmpty()) {
+            return getAsyncDataStore().update(sessionItem);
+        }
+        return getAsyncDataStore()
+                .update(sessionItem, changedAttributeNames.get())
+                .thenCompose(
+                        updated ->
+                                updated
+                                        ? CompletableFuture.completedFuture(sessionItem)
+                                        : getAsyncDataStore().update(sessionItem));
+    }
+
+    private SessionItem cacheSession(SessionItem sessionItem) {
+        if (sessionCache != null && sessionItem != null) {
+            sessionCache.put(sessionItem);
+        }
+        return sessionItem;
+    }
+
+    private void invalidateCachedSession(UUID sessionId) {
+        if (sessionCache != null) {
+            sessionCache.invalidate(String.valueOf(sessionId));
+        }
+    }
+
+    private static SessionCache createSessionCache(ConfigurationService configurationService) {
+        int maximumSize = configurationService.getSessionCacheSize();
+        if (maximumSize < 1) {
+            return null;
+        }
+        return new SessionCache(
+                maximumSize,
+                Duration.ofSeconds(configurationService.getSessionCacheTtl()),
+                Clock.systemUTC());
+    }
+
+    private SessionItem trackChanges(SessionItem sessionItem) {
+        if (sessionItem != null) {
+            sessionItem.resetChangedAttributes();
+        }
+        return sessionItem;
+    }
+
+    private AsyncDataStore<SessionItem> getAsyncDataStore() {
+        AsyncDataStore<SessionItem> store = asyncDataStore;
+        if (store == null && asyncDataStoreFactory != null) {
+            synchronized (this) {
+                store = asyncDataStore;
+                if (store == null) {
+                    store = asyncDataStoreFactory.get();
+                    asyncDataStore = store;
+                }
+            }
+        }
+        if (store == null) {
+            throw new IllegalStateException("SessionService has no AsyncDataStore configured");
+        }
+        return store;
+    }
 }
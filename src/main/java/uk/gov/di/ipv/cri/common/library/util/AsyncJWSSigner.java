@@ -0,0 +1,11 @@
+package uk.gov.di.ipv.cri.common.library.util;
+
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncJWSSigner extends JWSSigner {
+    CompletableFuture<Base64URL> signAsync(JWSHeader header, byte[] signingInput);
+}
@@ -3,10 +3,11 @@ package uk.gov.di.ipv.cri.common.library.util;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
-import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.jca.JCAContext;
 import com.nimbusds.jose.util.Base64URL;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.kms.KmsAsyncClient;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.kms.model.MessageType;
 import software.amazon.awssdk.services.kms.model.SignRequest;
@@ -14,55 +15,273 @@ import software.amazon.awssdk.services.kms.model.SignResponse;
 import software.amazon.awssdk.services.kms.model.SigningAlgorithmSpec;
 import uk.gov.di.ipv.cri.common.library.annotations.ExcludeFromGeneratedCoverageReport;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import static com.nimbusds.jose.JWSAlgorithm.ES256;
 
-public class KMSSigner implements JWSSigner {
+public class KMSSigner implements AsyncJWSSigner {
+    // MessageDigest is not thread safe, so each thread keeps its own instance
+    private static final ThreadLocal<MessageDigest> SHA_256_DIGEST = new ThreadLocal<>();
 
     private final KmsClient kmsClient;
     private final JCAContext jcaContext = new JCAContext();
     private final String keyId;
+    private final KMSSigningPolicy signingPolicy;
+    private final LatencyHistogram attemptLatency = new LatencyHistogram();
+    private final LatencyHistogram signLatency = new LatencyHistogram();
+    private final AtomicLong hedgedRequestCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private final AtomicLong deadlineExceededCount = new AtomicLong();
+    private final KmsAsyncClient kmsAsyncClient;
 
     @ExcludeFromGeneratedCoverageReport
     public KMSSigner(String keyId) {
-        this.keyId = keyId;
-        this.kmsClient = KmsClient.builder().build();
+        this(
+                keyId,
+                KmsClient.builder().build(),
+                null,
+                new KMSSigningPolicy(
+                        Duration.ofMillis(
+                                Optional.ofNullable(System.getenv("KMS_SIGN_DEADLINE_MS"))
+                                        .map(Long::parseLong)
+                                        .orElse(0L)),
+                        Optional.ofNullable(System.getenv("KMS_SIGN_HEDGE_PERCENTILE"))
+                                .map(Double::parseDouble)
+                                .orElse(0.0),
+                        Duration.ofMillis(
+                                Optional.ofNullable(System.getenv("KMS_SIGN_MIN_HEDGE_DELAY_MS"))
+                                        .map(Long::parseLong)
+                                        .orElse(10L))));
     }
 
     public KMSSigner(String keyId, KmsClient kmsClient) {
+        this(keyId, kmsClient, null, KMSSigningPolicy.none());
+    }
+
+    public KMSSigner(String keyId, KmsClient kmsClient, KmsAsyncClient kmsAsyncClient) {
+        this(keyId, kmsClient, kmsAsyncClient, KMSSigningPolicy.none());
+    }
+
+    public KMSSigner(
+            String keyId,
+            KmsClient kmsClient,
+            KmsAsyncClient kmsAsyncClient,
+            KMSSigningPolicy signingPolicy) {
         this.keyId = keyId;
         this.kmsClient = kmsClient;
+        this.kmsAsyncClient = kmsAsyncClient;
+        this.signingPolicy =
+                Objects.requireNonNull(signingPolicy, "signingPolicy must not be null");
     }
 
     @Override
     public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
-        Objects.requireNonNull(signingInput, "Signing input must not be null");
+        return sign(createSignRequest(signingInput));
+    }
 
-        byte[] signingInputHash;
+    // Not an overload of sign, so JWSSigner calls passing null stay unambiguous. The buffer's
+    // remaining bytes are digested and consumed.
+    public Base64URL signDigestInput(JWSHeader header, ByteBuffer signingInput)
+            throws JOSEException {
+        return sign(createSignRequest(signingInput));
+    }
 
+    private Base64URL sign(SignRequest signRequest) throws JOSEException {
+        if (signingPolicy.isHedgingEnabled()) {
+            return awaitSignature(
+                    sendSignRequest(signRequest, this::sendSyncSignAttempt)
+                            .thenApply(KMSSigner::toSignature));
+        }
+
+        long startNanos = System.nanoTime();
+        SignResponse signResponse;
         try {
-            signingInputHash = MessageDigest.getInstance("SHA-256").digest(signingInput);
-        } catch (NoSuchAlgorithmException e) {
-            throw new JOSEException(e.getMessage());
+            signResponse = kmsClient.sign(signRequest);
+        } catch (ApiCallTimeoutException e) {
+            deadlineExceededCount.incrementAndGet();
+            throw e;
         }
+        long latencyNanos = System.nanoTime() - startNanos;
+        attemptLatency.recordNanos(latencyNanos);
+        signLatency.recordNanos(latencyNanos);
 
-        SignRequest signRequest =
-                SignRequest.builder()
-                        .signingAlgorithm(SigningAlgorithmSpec.ECDSA_SHA_256.toString())
-                        .keyId(keyId)
-                        .message(SdkBytes.fromByteArray(signingInputHash))
-                        .messageType(MessageType.DIGEST)
-                        .build();
+        return toSignature(signResponse);
+    }
+
+    @Override
+    public CompletableFuture<Base64URL> signAsync(JWSHeader header, byte[] signingInput) {
+        try {
+            return signAsync(createSignRequest(signingInput));
+        } catch (JOSEException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public CompletableFuture<Base64URL> signDigestInputAsync(
+            JWSHeader header, ByteBuffer signingInput) {
+        try {
+            return signAsync(createSignRequest(signingInput));
+        } catch (JOSEException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<Base64URL> signAsync(SignRequest signRequest) {
+        return sendSignRequest(signRequest, this::sendAsyncSignAttempt)
+                .thenApply(KMSSigner::toSignature);
+    }
+
+    public LatencyHistogram getAttemptLatencyHistogram() {
+        return attemptLatency;
+    }
+
+    public LatencyHistogram getSignLatencyHistogram() {
+        return signLatency;
+    }
+
+    public long getHedgedRequestCount() {
+        return hedgedRequestCount.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    public long getDeadlineExceededCount() {
+        return deadlineExceededCount.get();
+    }
+
+    private CompletableFuture<SignResponse> sendSignRequest(
+            SignRequest signRequest,
+            Function<SignRequest, CompletableFuture<SignResponse>> signAttempt) {
+        long startNanos = System.nanoTime();
+        CompletableFuture<SignResponse> result = new CompletableFuture<>();
+        AtomicInteger pendingAttempts = new AtomicInteger(1);
+
+        sendSignAttempt(signRequest, signAttempt, result, pendingAttempts, false);
+        signingPolicy
+                .getHedgeDelay(attemptLatency)
+                .ifPresent(
+                        hedgeDelay ->
+                                scheduleHedgedSignAttempt(
+                                        signRequest,
+                                        signAttempt,
+                                        result,
+                                        pendingAttempts,
+                                        hedgeDelay));
+        if (signingPolicy.hasDeadline()) {
+            result.orTimeout(signingPolicy.getDeadline().toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        return result.whenComplete(
+                (signResponse, error) -> {
+                    if (error == null) {
+                        signLatency.recordNanos(System.nanoTime() - startNanos);
+                    } else if (isDeadlineExceeded(error)) {
+                        deadlineExceededCount.incrementAndGet();
+                    }
+                });
+    }
 
-        SignResponse signResponse = kmsClient.sign(signRequest);
+    private void scheduleHedgedSignAttempt(
+            SignRequest signRequest,
+            Function<SignRequest, CompletableFuture<SignResponse>> signAttempt,
+            CompletableFuture<SignResponse> result,
+            AtomicInteger pendingAttempts,
+            Duration hedgeDelay) {
+        CompletableFuture.delayedExecutor(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS)
+                .execute(
+                        () -> {
+                            if (result.isDone()) {
+                                return;
+                            }
+                            pendingAttempts.incrementAndGet();
+                            hedgedRequestCount.incrementAndGet();
+                            sendSignAttempt(
+                                    signRequest, signAttempt, result, pendingAttempts, true);
+                        });
+    }
+
+    private void sendSignAttempt(
+            SignRequest signRequest,
+            Function<SignRequest, CompletableFuture<SignResponse>> signAttempt,
+            CompletableFuture<SignResponse> result,
+            AtomicInteger pendingAttempts,
+            boolean hedged) {
+        long startNanos = System.nanoTime();
+        CompletableFuture<SignResponse> attempt = signAttempt.apply(signRequest);
+        attempt.whenComplete(
+                (signResponse, error) -> {
+                    if (error == null) {
+                        attemptLatency.recordNanos(System.nanoTime() - startNanos);
+                        if (result.complete(signResponse) && hedged) {
+                            hedgeWinCount.incrementAndGet();
+                        }
+                    } else if (pendingAttempts.decrementAndGet() == 0) {
+                        result.completeExceptionally(error);
+                    }
+                });
+        // Whichever attempt loses, or all of them on timeout, is cancelled once a result is in
+        result.whenComplete((signResponse, error) -> attempt.cancel(true));
+    }
 
+    private CompletableFuture<SignResponse> sendAsyncSignAttempt(SignRequest signRequest) {
+        return getKmsAsyncClient().sign(signRequest);
+    }
+
+    // Blocking calls on the injected client, run off the caller's thread so they can be hedged
+    private CompletableFuture<SignResponse> sendSyncSignAttempt(SignRequest signRequest) {
+        return CompletableFuture.supplyAsync(
+                () -> kmsClient.sign(signRequest), SyncSignExecutorHolder.EXECUTOR);
+    }
+
+    private static Base64URL toSignature(SignResponse signResponse) {
         return Base64URL.encode(signResponse.signature().asByteArray());
     }
 
+    private static boolean isDeadlineExceeded(Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        return cause instanceof TimeoutException || cause instanceof ApiCallTimeoutException;
+    }
+
+    private static Base64URL awaitSignature(CompletableFuture<Base64URL> signature)
+            throws JOSEException {
+        try {
+            return signature.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JOSEException("Interrupted while waiting for KMS signature", e);
+        } catch (ExecutionException e) {
+            Throwable cause =
+                    e.getCause() instanceof CompletionException
+                            ? e.getCause().getCause()
+                            : e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw new JOSEException("KMS sign request exceeded its deadline", cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JOSEException(cause.getMessage(), cause);
+        }
+    }
+
     @Override
     public Set<JWSAlgorithm> supportedJWSAlgorithms() {
         return Set.of(ES256);
@@ -72,4 +291,74 @@ public class KMSSigner implements JWSSigner {
     public JCAContext getJCAContext() {
         return jcaContext;
     }
+
+    private SignRequest createSignRequest(byte[] signingInput) throws JOSEException {
+        Objects.requireNonNull(signingInput, "Signing input must not be null");
+
+        MessageDigest digest = getSha256Digest();
+        try {
+            return createSignRequestForDigest(digest.digest(signingInput));
+        } finally {
+            digest.reset();
+        }
+    }
+
+    // Hashes the remaining bytes of the buffer, advancing its position to its limit
+    private SignRequest createSignRequest(ByteBuffer signingInput) throws JOSEException {
+        Objects.requireNonNull(signingInput, "Signing input must not be null");
+
+        MessageDigest digest = getSha256Digest();
+        try {
+            digest.update(signingInput);
+            return createSignRequestForDigest(digest.digest());
+        } finally {
+            digest.reset();
+        }
+    }
+
+    private SignRequest createSignRequestForDigest(byte[] signingInputHash) {
+        SignRequest.Builder signRequestBuilder =
+                SignRequest.builder()
+                        .signingAlgorithm(SigningAlgorithmSpec.ECDSA_SHA_256.toString())
+                        .keyId(keyId)
+                        .message(SdkBytes.fromByteArray(signingInputHash))
+                        .messageType(MessageType.DIGEST);
+        if (signingPolicy.hasDeadline()) {
+            signRequestBuilder.overrideConfiguration(
+                    config -> config.apiCallTimeout(signingPolicy.getDeadline()));
+        }
+        return signRequestBuilder.build();
+    }
+
+    private static MessageDigest getSha256Digest() throws JOSEException {
+        MessageDigest digest = SHA_256_DIGEST.get();
+        if (digest == null) {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new JOSEException(e.getMessage());
+            }
+            SHA_256_DIGEST.set(digest);
+        }
+        return digest;
+    }
+
+    private KmsAsyncClient getKmsAsyncClient() {
+        return kmsAsyncClient != null ? kmsAsyncClient : SharedAsyncClientHolder.KMS_ASYNC_CLIENT;
+    }
+
+    private static class SyncSignExecutorHolder {
+        private static final ExecutorService EXECUTOR =
+                Executors.newCachedThreadPool(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "kms-sign");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+
+    // Only signers that sign asynchronously without an injected client pay for its event loop
+    private static class SharedAsyncClientHolder {
+        private static final KmsAsyncClient KMS_ASYNC_CLIENT = KmsAsyncClient.builder().build();
+    }
 }
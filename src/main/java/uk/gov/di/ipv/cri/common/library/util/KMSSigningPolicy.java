@@ -0,0 +1,56 @@
+package uk.gov.di.ipv.cri.common.library.util;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+public class KMSSigningPolicy {
+    // Hedging stays off until enough attempts have been seen to estimate the percentile
+    static final long MINIMUM_HEDGE_SAMPLES = 20;
+
+    private final Duration deadline;
+    private final double hedgePercentile;
+    private final Duration minimumHedgeDelay;
+
+    public KMSSigningPolicy(Duration deadline, double hedgePercentile, Duration minimumHedgeDelay) {
+        this.deadline = Objects.requireNonNull(deadline, "deadline must not be null");
+        this.minimumHedgeDelay =
+                Objects.requireNonNull(minimumHedgeDelay, "minimumHedgeDelay must not be null");
+        if (hedgePercentile < 0 || hedgePercentile >= 100) {
+            throw new IllegalArgumentException("hedgePercentile must be between 0 and 100");
+        }
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public static KMSSigningPolicy none() {
+        return new KMSSigningPolicy(Duration.ZERO, 0, Duration.ZERO);
+    }
+
+    public boolean hasDeadline() {
+        return !deadline.isZero() && !deadline.isNegative();
+    }
+
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedgePercentile > 0;
+    }
+
+    Optional<Duration> getHedgeDelay(LatencyHistogram attemptLatency) {
+        if (!isHedgingEnabled() || attemptLatency.getCount() < MINIMUM_HEDGE_SAMPLES) {
+            return Optional.empty();
+        }
+
+        Duration percentileLatency = attemptLatency.getPercentile(hedgePercentile);
+        Duration hedgeDelay =
+                percentileLatency.compareTo(minimumHedgeDelay) < 0
+                        ? minimumHedgeDelay
+                        : percentileLatency;
+        if (hasDeadline() && hedgeDelay.compareTo(deadline) >= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(hedgeDelay);
+    }
+}
@@ -0,0 +1,69 @@
+package uk.gov.di.ipv.cri.common.library.util;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+    // Each power of two (in microseconds) is split into four buckets, bounding the error to 25%
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = Long.SIZE * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+
+    public void record(Duration latency) {
+        recordNanos(latency.toNanos());
+    }
+
+    public void recordNanos(long latencyNanos) {
+        long micros = Math.max(1L, TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        counts.incrementAndGet(bucketIndex(micros));
+        totalCount.incrementAndGet();
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public Duration getPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be greater than 0 and at most 100");
+        }
+        long total = totalCount.get();
+        if (total == 0) {
+            return Duration.ZERO;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Duration.of(upperBoundMicros(i), ChronoUnit.MICROS);
+            }
+        }
+        return Duration.of(upperBoundMicros(BUCKET_COUNT - 1), ChronoUnit.MICROS);
+    }
+
+    private static int bucketIndex(long micros) {
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+        int subBucket =
+                exponent < SUB_BUCKET_BITS
+                        ? 0
+                        : (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return exponent * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundMicros(int bucketIndex) {
+        int exponent = bucketIndex / SUB_BUCKETS;
+        int subBucket = bucketIndex % SUB_BUCKETS;
+        if (exponent < SUB_BUCKET_BITS) {
+            return 1L << (exponent + 1);
+        }
+        return (1L << exponent) + ((subBucket + 1L) << (exponent - SUB_BUCKET_BITS));
+    }
+}
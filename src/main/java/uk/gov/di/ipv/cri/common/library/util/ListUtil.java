@@ -2,6 +2,8 @@ package uk.gov.di.ipv.cri.common.library.util;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ListUtil {
     public <T> T getOneItemOrThrowError(List<T> list) throws IllegalArgumentException {
@@ -13,4 +15,9 @@ public class ListUtil {
             return list.get(0);
         }
     }
+
+    // Pulls at most two items, which is enough to tell one item from several
+    public <T> T getOneItemOrThrowError(Stream<T> items) throws IllegalArgumentException {
+        return getOneItemOrThrowError(items.limit(2).collect(Collectors.toList()));
+    }
 }
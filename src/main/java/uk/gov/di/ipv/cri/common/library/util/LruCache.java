@@ -0,0 +1,76 @@
+package uk.gov.di.ipv.cri.common.library.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LruCache<K, V> {
+
+    private final Map<K, V> entries;
+    private final int maximumSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public LruCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        this.maximumSize = maximumSize;
+        this.entries =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                        boolean evict = size() > LruCache.this.maximumSize;
+                        if (evict) {
+                            evictionCount.incrementAndGet();
+                        }
+                        return evict;
+                    }
+                };
+    }
+
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (value != null) {
+            entries.put(key, value);
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+}
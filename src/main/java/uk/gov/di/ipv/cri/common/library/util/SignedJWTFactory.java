@@ -5,24 +5,211 @@ import com.nimbusds.jose.JOSEObjectType;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
 public class SignedJWTFactory {
-    private final JWSSigner kmsSigner;
+    // Every JWT we issue has the same header. A parsed header keeps its encoding, so sharing
+    // one means it is neither re-encoded nor re-parsed per JWT
+    private static final JWSHeader JWS_HEADER = createJwsHeader();
+
+    private static final int DEFAULT_MAX_CONCURRENT_SIGNS = 8;
+
+    private final AsyncJWSSigner kmsSigner;
+    private final int maxConcurrentSigns;
 
     public SignedJWTFactory(JWSSigner kmsSigner) {
+        this(kmsSigner, DEFAULT_MAX_CONCURRENT_SIGNS);
+    }
+
+    // Signers without their own async path sign on a shared pool of DEFAULT_MAX_CONCURRENT_SIGNS
+    // daemon threads, so batches overlap without blocking the common pool
+    public SignedJWTFactory(JWSSigner kmsSigner, int maxConcurrentSigns) {
+        this(kmsSigner, maxConcurrentSigns, SignExecutorHolder.EXECUTOR);
+    }
+
+    public SignedJWTFactory(JWSSigner kmsSigner, int maxConcurrentSigns, Executor signExecutor) {
+        this(new PooledAsyncSigner(kmsSigner, signExecutor), maxConcurrentSigns);
+    }
+
+    public SignedJWTFactory(AsyncJWSSigner kmsSigner) {
+        this(kmsSigner, DEFAULT_MAX_CONCURRENT_SIGNS);
+    }
+
+    public SignedJWTFactory(AsyncJWSSigner kmsSigner, int maxConcurrentSigns) {
+        if (maxConcurrentSigns < 1) {
+            throw new IllegalArgumentException("maxConcurrentSigns must be at least 1");
+        }
         this.kmsSigner = kmsSigner;
+        this.maxConcurrentSigns = maxConcurrentSigns;
     }
 
     public SignedJWT createSignedJwt(JWTClaimsSet claimsSet) throws JOSEException {
-        JWSHeader jwsHeader = generateHeader();
-        SignedJWT signedJWT = new SignedJWT(jwsHeader, claimsSet);
-        signedJWT.sign(kmsSigner);
-        return signedJWT;
+        SignedJWT unsignedJwt = new SignedJWT(JWS_HEADER, claimsSet);
+        return attachSignature(
+                unsignedJwt, kmsSigner.sign(JWS_HEADER, unsignedJwt.getSigningInput()));
+    }
+
+    public List<SignedJWTResult> createSignedJwts(List<JWTClaimsSet> claimsSets) {
+        SignedJWTResult[] results = new SignedJWTResult[claimsSets.size()];
+        CompletableFuture<?>[] signedJwts = new CompletableFuture<?>[claimsSets.size()];
+        // Bounds the signs in flight; each item takes a permit and returns it when it completes
+        Semaphore signPermits = new Semaphore(maxConcurrentSigns);
+        for (int i = 0; i < signedJwts.length; i++) {
+            int index = i;
+            signPermits.acquireUninterruptibly();
+            signedJwts[i] =
+                    signAsync(claimsSets.get(i))
+                            .handle(
+                                    (signedJwt, error) -> {
+                                        signPermits.release();
+                                        results[index] =
+                                                error == null
+                                                        ? SignedJWTResult.success(signedJwt)
+                                                        : SignedJWTResult.failure(unwrap(error));
+                                        return null;
+                                    });
+        }
+        CompletableFuture.allOf(signedJwts).join();
+
+        return Arrays.asList(results);
+    }
+
+    public CompletableFuture<SignedJWT> createSignedJwtAsync(JWTClaimsSet claimsSet) {
+        return signAsync(claimsSet);
+    }
+
+    private CompletableFuture<SignedJWT> signAsync(JWTClaimsSet claimsSet) {
+        SignedJWT unsignedJwt;
+        CompletableFuture<Base64URL> signature;
+        try {
+            unsignedJwt = new SignedJWT(JWS_HEADER, claimsSet);
+            signature = kmsSigner.signAsync(JWS_HEADER, unsignedJwt.getSigningInput());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return signature.thenApply(
+                value -> {
+                    try {
+                        return attachSignature(unsignedJwt, value);
+                    } catch (JOSEException e) {
+                        throw new CompletionException(e);
+                    }
+                });
     }
 
-    private JWSHeader generateHeader() {
-        return new JWSHeader.Builder(JWSAlgorithm.ES256).type(JOSEObjectType.JWT).build();
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+    }
+
+    // Signing through the JWT, rather than rebuilding it from its encoded parts, keeps the
+    // shared header instead of parsing a copy of it
+    private static SignedJWT attachSignature(SignedJWT unsignedJwt, Base64URL signature)
+            throws JOSEException {
+        unsignedJwt.sign(new PrecomputedSigner(signature));
+        return unsignedJwt;
+    }
+
+    private static JWSHeader createJwsHeader() {
+        try {
+            return JWSHeader.parse(
+                    new JWSHeader.Builder(JWSAlgorithm.ES256)
+                            .type(JOSEObjectType.JWT)
+                            .build()
+                            .toBase64URL());
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class PooledAsyncSigner implements AsyncJWSSigner {
+        private final JWSSigner signer;
+        private final Executor signExecutor;
+
+        PooledAsyncSigner(JWSSigner signer, Executor signExecutor) {
+            this.signer = signer;
+            this.signExecutor =
+                    Objects.requireNonNull(signExecutor, "signExecutor must not be null");
+        }
+
+        @Override
+        public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+            return signer.sign(header, signingInput);
+        }
+
+        @Override
+        public CompletableFuture<Base64URL> signAsync(JWSHeader header, byte[] signingInput) {
+            return CompletableFuture.supplyAsync(
+                    () -> {
+                        try {
+                            return signer.sign(header, signingInput);
+                        } catch (JOSEException e) {
+                            throw new CompletionException(e);
+                        }
+                    },
+                    signExecutor);
+        }
+
+        @Override
+        public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+            return signer.supportedJWSAlgorithms();
+        }
+
+        @Override
+        public JCAContext getJCAContext() {
+            return signer.getJCAContext();
+        }
+    }
+
+    private static class SignExecutorHolder {
+        private static final ExecutorService EXECUTOR =
+                Executors.newFixedThreadPool(
+                        DEFAULT_MAX_CONCURRENT_SIGNS,
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "jwt-sign");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+
+    private static class PrecomputedSigner implements JWSSigner {
+        private final JCAContext jcaContext = new JCAContext();
+        private final Base64URL signature;
+
+        PrecomputedSigner(Base64URL signature) {
+            this.signature = signature;
+        }
+
+        @Override
+        public Base64URL sign(JWSHeader header, byte[] signingInput) {
+            return signature;
+        }
+
+        @Override
+        public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+            return Set.of(JWSAlgorithm.ES256);
+        }
+
+        @Override
+        public JCAContext getJCAContext() {
+            return jcaContext;
+        }
     }
 }
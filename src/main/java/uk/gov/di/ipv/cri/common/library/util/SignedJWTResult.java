@@ -0,0 +1,33 @@
+package uk.gov.di.ipv.cri.common.library.util;
+
+import com.nimbusds.jwt.SignedJWT;
+
+public class SignedJWTResult {
+    private final SignedJWT signedJwt;
+    private final Throwable error;
+
+    private SignedJWTResult(SignedJWT signedJwt, Throwable error) {
+        this.signedJwt = signedJwt;
+        this.error = error;
+    }
+
+    public static SignedJWTResult success(SignedJWT signedJwt) {
+        return new SignedJWTResult(signedJwt, null);
+    }
+
+    public static SignedJWTResult failure(Throwable error) {
+        return new SignedJWTResult(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public SignedJWT getSignedJwt() {
+        return signedJwt;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+}
@@ -0,0 +1,274 @@
+package uk.gov.di.ipv.cri.common.library.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public class TtlCache<K, V> {
+
+    private final Map<K, CacheEntry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> loadsInFlight = new ConcurrentHashMap<>();
+    private final Set<K> refreshesInFlight = ConcurrentHashMap.newKeySet();
+    private final Function<K, Duration> ttlResolver;
+    private final Clock clock;
+    private final Duration refreshAheadWindow;
+    private final Duration maxStaleness;
+    private final Executor refreshExecutor;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong staleHitCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    // Bumped on every invalidation, so a load that started before one is not cached after it
+    private final AtomicLong generation = new AtomicLong();
+
+    public TtlCache(Duration ttl, Clock clock) {
+        this(key -> ttl, clock);
+    }
+
+    public TtlCache(Function<K, Duration> ttlResolver, Clock clock) {
+        this(ttlResolver, clock, Duration.ZERO, Duration.ZERO, null);
+    }
+
+    public TtlCache(
+            Function<K, Duration> ttlResolver,
+            Clock clock,
+            Duration refreshAheadWindow,
+            Duration maxStaleness,
+            Executor refreshExecutor) {
+        this.ttlResolver = Objects.requireNonNull(ttlResolver, "ttlResolver must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+        this.refreshAheadWindow =
+                Objects.requireNonNull(refreshAheadWindow, "refreshAheadWindow must not be null");
+        this.maxStaleness = Objects.requireNonNull(maxStaleness, "maxStaleness must not be null");
+        this.refreshExecutor = refreshExecutor;
+        if (isRefreshAheadEnabled()) {
+            Objects.requireNonNull(refreshExecutor, "refreshExecutor must not be null");
+        }
+    }
+
+    public static Executor defaultRefreshExecutor() {
+        return RefreshExecutorHolder.EXECUTOR;
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        Duration ttl = ttlResolver.apply(key);
+        if (!isCachingEnabled(ttl)) {
+            missCount.incrementAndGet();
+            return loader.apply(key);
+        }
+
+        Instant now = clock.instant();
+        CacheEntry<V> cachedEntry = entries.get(key);
+        if (cachedEntry != null) {
+            if (!cachedEntry.isRefreshDue(now, refreshAheadWindow)) {
+                hitCount.incrementAndGet();
+                return cachedEntry.getValue();
+            }
+            if (isRefreshAheadEnabled() && !cachedEntry.isExpired(now.minus(maxStaleness))) {
+                // Serve the current value while it is reloaded in the background
+                hitCount.incrementAndGet();
+                if (cachedEntry.isExpired(now)) {
+                    staleHitCount.incrementAndGet();
+                }
+                scheduleRefresh(key, loader, ttl);
+                return cachedEntry.getValue();
+            }
+        }
+
+        return load(key, loader, ttl, now);
+    }
+
+    public V getIfPresent(K key) {
+        CacheEntry<V> cachedEntry = entries.get(key);
+        if (cachedEntry == null || cachedEntry.isExpired(clock.instant())) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return cachedEntry.getValue();
+    }
+
+    public void put(K key, V value) {
+        Duration ttl = ttlResolver.apply(key);
+        if (isCachingEnabled(ttl) && value != null) {
+            entries.put(key, new CacheEntry<>(value, clock.instant().plus(ttl)));
+        }
+    }
+
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        loadsInFlight.remove(key);
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        loadsInFlight.clear();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.get();
+    }
+
+    // Loads outside the map's locks; concurrent callers for one key wait on the same future
+    private V load(K key, Function<K, V> loader, Duration ttl, Instant now) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> loadInFlight = loadsInFlight.putIfAbsent(key, load);
+        if (loadInFlight != null) {
+            missCount.incrementAndGet();
+            return awaitLoad(loadInFlight);
+        }
+
+        try {
+            CacheEntry<V> currentEntry = entries.get(key);
+            if (currentEntry != null && !currentEntry.isExpired(now)) {
+                // Another caller finished loading this key after our first check
+                hitCount.incrementAndGet();
+                load.complete(currentEntry.getValue());
+                return currentEntry.getValue();
+            }
+            if (currentEntry == null) {
+                missCount.incrementAndGet();
+            } else {
+                refreshCount.incrementAndGet();
+            }
+
+            long loadGeneration = generation.get();
+            V value = loader.apply(key);
+            storeLoadedValue(key, value, now.plus(ttl), loadGeneration);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(key, load);
+        }
+    }
+
+    private static <V> V awaitLoad(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void scheduleRefresh(K key, Function<K, V> loader, Duration ttl) {
+        if (!refreshesInFlight.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> refresh(key, loader, ttl));
+        } catch (RejectedExecutionException e) {
+            refreshesInFlight.remove(key);
+            refreshFailureCount.incrementAndGet();
+        }
+    }
+
+    private void refresh(K key, Function<K, V> loader, Duration ttl) {
+        try {
+            long loadGeneration = generation.get();
+            V value = loader.apply(key);
+            if (value != null) {
+                storeLoadedValue(key, value, clock.instant().plus(ttl), loadGeneration);
+                refreshCount.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            // The current value keeps being served until it passes the staleness ceiling
+            refreshFailureCount.incrementAndGet();
+        } finally {
+            refreshesInFlight.remove(key);
+        }
+    }
+
+    // The generation is checked under the key's map lock, and invalidate removes the entry after
+    // bumping it, so an invalidation racing this store always wins
+    private void storeLoadedValue(K key, V value, Instant expiresAt, long loadGeneration) {
+        entries.compute(
+                key,
+                (k, currentEntry) -> {
+                    if (generation.get() != loadGeneration) {
+                        return currentEntry;
+                    }
+                    return value == null ? null : new CacheEntry<>(value, expiresAt);
+                });
+    }
+
+    private boolean isRefreshAheadEnabled() {
+        return !refreshAheadWindow.isZero() || !maxStaleness.isZero();
+    }
+
+    private static boolean isCachingEnabled(Duration ttl) {
+        return ttl != null && !ttl.isZero() && !ttl.isNegative();
+    }
+
+    private static class CacheEntry<V> {
+        private final V value;
+        private final Instant expiresAt;
+
+        CacheEntry(V value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        V getValue() {
+            return value;
+        }
+
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+
+        boolean isRefreshDue(Instant now, Duration refreshAheadWindow) {
+            return isExpired(now.plus(refreshAheadWindow));
+        }
+    }
+
+    private static class RefreshExecutorHolder {
+        private static final ExecutorService EXECUTOR =
+                Executors.newSingleThreadExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "ttl-cache-refresh");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+}
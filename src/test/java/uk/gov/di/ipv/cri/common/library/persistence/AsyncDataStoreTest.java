@@ -0,0 +1,165 @@
+package uk.gov.di.ipv.cri.common.library.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncIndex;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import uk.gov.di.ipv.cri.common.library.persistence.item.SessionItem;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncDataStoreTest {
+    private static final String TEST_TABLE_NAME = "test-session-table";
+
+    @Mock private DynamoDbEnhancedAsyncClient mockDynamoDbEnhancedAsyncClient;
+    @Mock private DynamoDbAsyncTable<SessionItem> mockDynamoDbAsyncTable;
+    @Mock private DynamoDbAsyncClient mockDynamoDbAsyncClient;
+
+    private AsyncDataStore<SessionItem> asyncDataStore;
+
+    @BeforeEach
+    void setUp() {
+        when(mockDynamoDbEnhancedAsyncClient.table(
+                        anyString(), ArgumentMatchers.<TableSchema<SessionItem>>any()))
+                .thenReturn(mockDynamoDbAsyncTable);
+
+        asyncDataStore =
+                new AsyncDataStore<>(
+                        TEST_TABLE_NAME, SessionItem.class, mockDynamoDbEnhancedAsyncClient);
+    }
+
+    @Test
+    void shouldPutItemIntoDynamoDbTable() {
+        SessionItem sessionItem = new SessionItem();
+        CompletableFuture<Void> putResult = CompletableFuture.completedFuture(null);
+        when(mockDynamoDbAsyncTable.putItem(sessionItem)).thenReturn(putResult);
+
+        assertThat(asyncDataStore.create(sessionItem), equalTo(putResult));
+    }
+
+    @Test
+    void shouldGetItemByPartitionKey() throws Exception {
+        SessionItem sessionItem = new SessionItem();
+        ArgumentCaptor<Key> keyArgumentCaptor = ArgumentCaptor.forClass(Key.class);
+        when(mockDynamoDbAsyncTable.getItem(keyArgumentCaptor.capture()))
+                .thenReturn(CompletableFuture.completedFuture(sessionItem));
+
+        SessionItem result = asyncDataStore.getItem("session-id").get();
+
+        assertThat(result, equalTo(sessionItem));
+        assertThat(keyArgumentCaptor.getValue().partitionKeyValue().s(), equalTo("session-id"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCollectAllPagesWhenQueryingAnIndex() throws Exception {
+        SessionItem firstItem = new SessionItem();
+        SessionItem secondItem = new SessionItem();
+        DynamoDbAsyncIndex<SessionItem> mockIndex = mock(DynamoDbAsyncIndex.class);
+        SdkPublisher<Page<SessionItem>> mockPublisher = mock(SdkPublisher.class);
+        when(mockDynamoDbAsyncTable.index(SessionItem.ACCESS_TOKEN_INDEX)).thenReturn(mockIndex);
+        when(mockIndex.query(any(QueryEnhancedRequest.class))).thenReturn(mockPublisher);
+        when(mockPublisher.subscribe(any(Consumer.class)))
+                .thenAnswer(
+                        invocation -> {
+                            Consumer<Page<SessionItem>> consumer = invocation.getArgument(0);
+                            consumer.accept(Page.create(List.of(firstItem)));
+                            consumer.accept(Page.create(List.of(secondItem)));
+                            return CompletableFuture.completedFuture(null);
+                        });
+
+        List<SessionItem> items =
+                asyncDataStore.getItemByIndex(SessionItem.ACCESS_TOKEN_INDEX, "token").get();
+
+        assertThat(items, contains(firstItem, secondItem));
+    }
+
+    @Test
+    void shouldOnlyWriteTheNamedAttributesOfAnExistingItem() throws Exception {
+        SessionItem sessionItem = new SessionItem();
+        sessionItem.setClientId("ipv-core");
+        ArgumentCaptor<UpdateItemRequest> updateItemRequestCaptor =
+                ArgumentCaptor.forClass(UpdateItemRequest.class);
+        when(mockDynamoDbAsyncTable.tableSchema())
+                .thenReturn(TableSchema.fromBean(SessionItem.class));
+        when(mockDynamoDbAsyncTable.tableName()).thenReturn(TEST_TABLE_NAME);
+        when(mockDynamoDbAsyncClient.updateItem(updateItemRequestCaptor.capture()))
+                .thenReturn(
+                        CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+
+        boolean updated =
+                createPartialUpdateDataStore().update(sessionItem, List.of("clientId")).get();
+
+        assertThat(updated, equalTo(true));
+        UpdateItemRequest updateItemRequest = updateItemRequestCaptor.getValue();
+        assertThat(updateItemRequest.updateExpression(), equalTo("SET #a0 = :a0"));
+        assertThat(updateItemRequest.conditionExpression(), equalTo("attribute_exists(#pk)"));
+        assertThat(
+                updateItemRequest.expressionAttributeNames(),
+                equalTo(Map.of("#pk", "sessionId", "#a0", "clientId")));
+    }
+
+    @Test
+    void shouldCompleteWithFalseWhenThePartiallyUpdatedItemDoesNotExist() throws Exception {
+        when(mockDynamoDbAsyncTable.tableSchema())
+                .thenReturn(TableSchema.fromBean(SessionItem.class));
+        when(mockDynamoDbAsyncTable.tableName()).thenReturn(TEST_TABLE_NAME);
+        when(mockDynamoDbAsyncClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(
+                        CompletableFuture.failedFuture(
+                                ConditionalCheckFailedException.builder().build()));
+
+        boolean updated =
+                createPartialUpdateDataStore()
+                        .update(new SessionItem(), List.of("clientId"))
+                        .get();
+
+        assertThat(updated, equalTo(false));
+    }
+
+    @Test
+    void shouldDeleteItemByPartitionKey() {
+        when(mockDynamoDbAsyncTable.deleteItem(any(Key.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        asyncDataStore.delete("session-id");
+
+        verify(mockDynamoDbAsyncTable).deleteItem(any(Key.class));
+    }
+
+    private AsyncDataStore<SessionItem> createPartialUpdateDataStore() {
+        return new AsyncDataStore<>(
+                TEST_TABLE_NAME,
+                TableSchema.fromBean(SessionItem.class),
+                mockDynamoDbEnhancedAsyncClient,
+                mockDynamoDbAsyncClient);
+    }
+}
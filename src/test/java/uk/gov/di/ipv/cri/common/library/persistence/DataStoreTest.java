@@ -7,16 +7,60 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPage;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.UpdateItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 import uk.gov.di.ipv.cri.common.library.persistence.item.SessionItem;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -26,6 +70,7 @@ class DataStoreTest {
 
     @Mock private DynamoDbEnhancedClient mockDynamoDbEnhancedClient;
     @Mock private DynamoDbTable<SessionItem> mockDynamoDbTable;
+    @Mock private DynamoDbClient mockDynamoDbClient;
 
     private SessionItem sessionItem;
     private DataStore<SessionItem> dataStore;
@@ -56,4 +101,381 @@ class DataStoreTest {
                 sessionItem.getSessionId(),
                 authorizationCodeItemArgumentCaptor.getValue().getSessionId());
     }
+
+    @Test
+    void shouldReturnTrueWhenConditionalPutSucceeds() {
+        Expression condition = Expression.builder().expression("attribute_not_exists(#a)").build();
+
+        assertTrue(dataStore.create(sessionItem, condition));
+        verify(mockDynamoDbTable).putItem(any(Consumer.class));
+    }
+
+    @Test
+    void shouldReturnFalseWhenConditionalPutFails() {
+        Expression condition = Expression.builder().expression("attribute_not_exists(#a)").build();
+        doThrow(ConditionalCheckFailedException.builder().build())
+                .when(mockDynamoDbTable)
+                .putItem(any(Consumer.class));
+
+        assertFalse(dataStore.create(sessionItem, condition));
+    }
+
+    @Test
+    void shouldBatchGetDistinctKeysInChunksOfOneHundred() {
+        List<String> partitionValues = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            partitionValues.add(UUID.randomUUID().toString());
+        }
+        partitionValues.add(partitionValues.get(0));
+        BatchGetResultPage page = mock(BatchGetResultPage.class);
+        when(page.resultsForTable(mockDynamoDbTable)).thenReturn(List.of(sessionItem));
+        BatchGetResultPageIterable pages = mock(BatchGetResultPageIterable.class);
+        when(pages.iterator()).thenAnswer(invocation -> List.of(page).iterator());
+        when(mockDynamoDbEnhancedClient.batchGetItem(any(BatchGetItemEnhancedRequest.class)))
+                .thenReturn(pages);
+
+        List<SessionItem> items = dataStore.getItems(partitionValues);
+
+        assertEquals(2, items.size());
+        verify(mockDynamoDbEnhancedClient, times(2))
+                .batchGetItem(any(BatchGetItemEnhancedRequest.class));
+    }
+
+    @Test
+    void shouldRetryUnprocessedItemsWhenBatchWriting() {
+        BatchWriteResult partialResult = mock(BatchWriteResult.class);
+        when(partialResult.unprocessedPutItemsForTable(mockDynamoDbTable))
+                .thenReturn(List.of(sessionItem));
+        BatchWriteResult completeResult = mock(BatchWriteResult.class);
+        when(completeResult.unprocessedPutItemsForTable(mockDynamoDbTable))
+                .thenReturn(Collections.emptyList());
+        when(mockDynamoDbEnhancedClient.batchWriteItem(any(BatchWriteItemEnhancedRequest.class)))
+                .thenReturn(partialResult, completeResult);
+        List<Long> retryDelays = new ArrayList<>();
+
+        createDataStoreWithBatchRetrySleeper(retryDelays::add)
+                .createAll(List.of(sessionItem, new SessionItem()));
+
+        verify(mockDynamoDbEnhancedClient, times(2))
+                .batchWriteItem(any(BatchWriteItemEnhancedRequest.class));
+        assertEquals(1, retryDelays.size());
+    }
+
+    @Test
+    void shouldThrowWhenBatchWriteItemsRemainUnprocessed() {
+        BatchWriteResult partialResult = mock(BatchWriteResult.class);
+        when(partialResult.unprocessedPutItemsForTable(mockDynamoDbTable))
+                .thenReturn(List.of(sessionItem));
+        when(mockDynamoDbEnhancedClient.batchWriteItem(any(BatchWriteItemEnhancedRequest.class)))
+                .thenReturn(partialResult);
+
+        List<Long> retryDelays = new ArrayList<>();
+        DataStore<SessionItem> batchDataStore =
+                createDataStoreWithBatchRetrySleeper(retryDelays::add);
+
+        assertThrows(
+                DynamoDbException.class, () -> batchDataStore.createAll(List.of(sessionItem)));
+        verify(mockDynamoDbEnhancedClient, times(6))
+                .batchWriteItem(any(BatchWriteItemEnhancedRequest.class));
+        // Full jitter keeps each delay within the exponentially growing, capped bound
+        assertEquals(5, retryDelays.size());
+        for (int attempt = 0; attempt < retryDelays.size(); attempt++) {
+            assertTrue(retryDelays.get(attempt) >= 0);
+            assertTrue(retryDelays.get(attempt) <= Math.min(1000L, 25L << attempt));
+        }
+    }
+
+    @Test
+    void shouldApplyConditionalPartialUpdateAndReturnTheUpdatedItem() {
+        DataStore<SessionItem> partialUpdateDataStore =
+                new DataStore<>(
+                        TEST_TABLE_NAME,
+                        TableSchema.fromBean(SessionItem.class),
+                        mockDynamoDbEnhancedClient,
+                        mockDynamoDbClient);
+        when(mockDynamoDbTable.tableSchema()).thenReturn(TableSchema.fromBean(SessionItem.class));
+        when(mockDynamoDbTable.tableName()).thenReturn(TEST_TABLE_NAME);
+        String sessionId = UUID.randomUUID().toString();
+        ArgumentCaptor<UpdateItemRequest> updateItemRequestCaptor =
+                ArgumentCaptor.forClass(UpdateItemRequest.class);
+        when(mockDynamoDbClient.updateItem(updateItemRequestCaptor.capture()))
+                .thenReturn(
+                        UpdateItemResponse.builder()
+                                .attributes(
+                                        Map.of(
+                                                "sessionId",
+                                                AttributeValue.builder().s(sessionId).build(),
+                                                "clientId",
+                                                AttributeValue.builder().s("ipv-core").build()))
+                                .build());
+
+        SessionItem updatedItem =
+                partialUpdateDataStore.update(
+                        sessionId,
+                        Expression.builder()
+                                .expression("SET #c = :c")
+                                .putExpressionName("#c", "clientId")
+                                .putExpressionValue(
+                                        ":c", AttributeValue.builder().s("ipv-core").build())
+                                .build(),
+                        Expression.builder().expression("attribute_exists(sessionId)").build());
+
+        assertThat(updatedItem.getSessionId().toString(), equalTo(sessionId));
+        assertThat(updatedItem.getClientId(), equalTo("ipv-core"));
+        UpdateItemRequest updateItemRequest = updateItemRequestCaptor.getValue();
+        assertThat(updateItemRequest.tableName(), equalTo(TEST_TABLE_NAME));
+        assertThat(updateItemRequest.key().get("sessionId").s(), equalTo(sessionId));
+        assertThat(updateItemRequest.conditionExpression(), equalTo("attribute_exists(sessionId)"));
+        assertThat(updateItemRequest.expressionAttributeNames(), equalTo(Map.of("#c", "clientId")));
+        assertThat(updateItemRequest.returnValues(), equalTo(ReturnValue.ALL_NEW));
+    }
+
+    @Test
+    void shouldOnlyWriteTheNamedNonKeyAttributes() {
+        DataStore<SessionItem> partialUpdateDataStore =
+                new DataStore<>(
+                        TEST_TABLE_NAME,
+                        TableSchema.fromBean(SessionItem.class),
+                        mockDynamoDbEnhancedClient,
+                        mockDynamoDbClient);
+        when(mockDynamoDbTable.tableSchema()).thenReturn(TableSchema.fromBean(SessionItem.class));
+        when(mockDynamoDbTable.tableName()).thenReturn(TEST_TABLE_NAME);
+        sessionItem.setClientId("ipv-core");
+        sessionItem.setAuthorizationCode(null);
+        ArgumentCaptor<UpdateItemRequest> updateItemRequestCaptor =
+                ArgumentCaptor.forClass(UpdateItemRequest.class);
+        when(mockDynamoDbClient.updateItem(updateItemRequestCaptor.capture()))
+                .thenReturn(UpdateItemResponse.builder().build());
+
+        boolean updated =
+                partialUpdateDataStore.update(
+                        sessionItem, List.of("sessionId", "clientId", "authorizationCode"));
+
+        assertTrue(updated);
+        UpdateItemRequest updateItemRequest = updateItemRequestCaptor.getValue();
+        assertThat(updateItemRequest.updateExpression(), equalTo("SET #a0 = :a0 REMOVE #a1"));
+        assertThat(updateItemRequest.conditionExpression(), equalTo("attribute_exists(#pk)"));
+        assertThat(
+                updateItemRequest.expressionAttributeNames(),
+                equalTo(
+                        Map.of(
+                                "#pk",
+                                "sessionId",
+                                "#a0",
+                                "clientId",
+                                "#a1",
+                                "authorizationCode")));
+        assertThat(
+                updateItemRequest.expressionAttributeValues().get(":a0").s(),
+                equalTo("ipv-core"));
+        assertThat(
+                updateItemRequest.key().get("sessionId").s(),
+                equalTo(sessionItem.getSessionId().toString()));
+    }
+
+    @Test
+    void shouldNotWriteNamedAttributesOfAnItemThatDoesNotExist() {
+        DataStore<SessionItem> partialUpdateDataStore =
+                new DataStore<>(
+                        TEST_TABLE_NAME,
+                        TableSchema.fromBean(SessionItem.class),
+                        mockDynamoDbEnhancedClient,
+                        mockDynamoDbClient);
+        when(mockDynamoDbTable.tableSchema()).thenReturn(TableSchema.fromBean(SessionItem.class));
+        when(mockDynamoDbTable.tableName()).thenReturn(TEST_TABLE_NAME);
+        when(mockDynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().build());
+
+        assertFalse(partialUpdateDataStore.update(sessionItem, List.of("clientId")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldWriteWholeItemConditionallyWhenNoDynamoDbClientIsConfigured() {
+        when(mockDynamoDbTable.tableSchema()).thenReturn(TableSchema.fromBean(SessionItem.class));
+        when(mockDynamoDbTable.tableName()).thenReturn(TEST_TABLE_NAME);
+        ArgumentCaptor<Consumer<UpdateItemEnhancedRequest.Builder<SessionItem>>>
+                updateRequestCaptor = ArgumentCaptor.forClass(Consumer.class);
+
+        assertTrue(dataStore.update(sessionItem, List.of("clientId")));
+
+        verify(mockDynamoDbTable).updateItem(updateRequestCaptor.capture());
+        UpdateItemEnhancedRequest.Builder<SessionItem> updateRequest =
+                UpdateItemEnhancedRequest.builder(SessionItem.class);
+        updateRequestCaptor.getValue().accept(updateRequest);
+        assertThat(updateRequest.build().item(), equalTo(sessionItem));
+        assertThat(
+                updateRequest.build().conditionExpression().expression(),
+                equalTo("attribute_exists(#pk)"));
+    }
+
+    @Test
+    void shouldReturnNullWhenPartialUpdateConditionFails() {
+        DataStore<SessionItem> partialUpdateDataStore =
+                new DataStore<>(
+                        TEST_TABLE_NAME,
+                        TableSchema.fromBean(SessionItem.class),
+                        mockDynamoDbEnhancedClient,
+                        mockDynamoDbClient);
+        when(mockDynamoDbTable.tableSchema()).thenReturn(TableSchema.fromBean(SessionItem.class));
+        when(mockDynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().build());
+
+        SessionItem updatedItem =
+                partialUpdateDataStore.update(
+                        UUID.randomUUID().toString(),
+                        Expression.builder().expression("REMOVE clientId").build(),
+                        Expression.builder().expression("attribute_exists(clientId)").build());
+
+        assertThat(updatedItem, nullValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPushStreamLimitDownToTheQuery() {
+        ArgumentCaptor<QueryEnhancedRequest> queryRequestCaptor =
+                ArgumentCaptor.forClass(QueryEnhancedRequest.class);
+        PageIterable<SessionItem> pages = mock(PageIterable.class);
+        SdkIterable<SessionItem> items =
+                () -> List.of(sessionItem, new SessionItem(), new SessionItem()).iterator();
+        when(pages.items()).thenReturn(items);
+        when(mockDynamoDbTable.query(queryRequestCaptor.capture())).thenReturn(pages);
+
+        List<SessionItem> streamedItems =
+                dataStore.streamItems("partition-value", 2).collect(Collectors.toList());
+
+        assertEquals(2, streamedItems.size());
+        assertThat(queryRequestCaptor.getValue().limit(), equalTo(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldScanEverySegmentAndStreamItemsToTheConsumer() {
+        ArgumentCaptor<ScanEnhancedRequest> scanRequestCaptor =
+                ArgumentCaptor.forClass(ScanEnhancedRequest.class);
+        PageIterable<SessionItem> pages = mock(PageIterable.class);
+        SdkIterable<SessionItem> items = () -> List.of(sessionItem).iterator();
+        when(pages.items()).thenReturn(items);
+        when(mockDynamoDbTable.scan(scanRequestCaptor.capture())).thenReturn(pages);
+        ConcurrentLinkedQueue<SessionItem> scannedItems = new ConcurrentLinkedQueue<>();
+
+        dataStore.scanItemsByAttribute(
+                "clientId", "ipv-core", 4, List.of("sessionId", "clientId"), scannedItems::add);
+
+        assertEquals(4, scannedItems.size());
+        List<ScanEnhancedRequest> scanRequests = scanRequestCaptor.getAllValues();
+        assertThat(
+                scanRequests.stream()
+                        .map(ScanEnhancedRequest::segment)
+                        .collect(Collectors.toList()),
+                containsInAnyOrder(0, 1, 2, 3));
+        assertThat(
+                scanRequests.stream()
+                        .map(ScanEnhancedRequest::totalSegments)
+                        .collect(Collectors.toList()),
+                everyItem(equalTo(4)));
+        assertThat(
+                scanRequests.get(0).attributesToProject(),
+                equalTo(List.of("sessionId", "clientId")));
+    }
+
+    @Test
+    void shouldPropagateSegmentScanFailures() {
+        when(mockDynamoDbTable.scan(any(ScanEnhancedRequest.class)))
+                .thenThrow(DynamoDbException.builder().message("scan failed").build());
+
+        assertThrows(
+                DynamoDbException.class,
+                () ->
+                        dataStore.scanItemsByAttribute(
+                                "clientId", "ipv-core", 2, List.of(), item -> {}));
+    }
+
+    @Test
+    void shouldFailOnFirstSegmentFailureWithoutWaitingForEarlierSegments() {
+        CountDownLatch firstSegmentReleased = new CountDownLatch(1);
+        when(mockDynamoDbTable.scan(any(ScanEnhancedRequest.class)))
+                .thenAnswer(
+                        invocation -> {
+                            ScanEnhancedRequest scanRequest = invocation.getArgument(0);
+                            if (scanRequest.segment() == 0) {
+                                firstSegmentReleased.await(5, TimeUnit.SECONDS);
+                            }
+                            throw DynamoDbException.builder().message("scan failed").build();
+                        });
+        ExecutorService scanExecutor = Executors.newFixedThreadPool(2);
+
+        try {
+            assertTimeoutPreemptively(
+                    Duration.ofSeconds(2),
+                    () ->
+                            assertThrows(
+                                    DynamoDbException.class,
+                                    () ->
+                                            dataStore.scanItemsByAttribute(
+                                                    "clientId",
+                                                    "ipv-core",
+                                                    2,
+                                                    List.of(),
+                                                    item -> {},
+                                                    scanExecutor)));
+        } finally {
+            firstSegmentReleased.countDown();
+            scanExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldNotScanMoreSegmentsAtOnceThanMaxScanWorkers() {
+        AtomicInteger runningScans = new AtomicInteger();
+        AtomicInteger mostRunningScans = new AtomicInteger();
+        PageIterable<SessionItem> pages = mock(PageIterable.class);
+        when(pages.items()).thenReturn(Collections::emptyIterator);
+        when(mockDynamoDbTable.scan(any(ScanEnhancedRequest.class)))
+                .thenAnswer(
+                        invocation -> {
+                            mostRunningScans.accumulateAndGet(
+                                    runningScans.incrementAndGet(), Math::max);
+                            Thread.sleep(10);
+                            runningScans.decrementAndGet();
+                            return pages;
+                        });
+        ExecutorService scanExecutor = Executors.newFixedThreadPool(6);
+
+        try {
+            dataStore.scanItemsByAttribute(
+                    "clientId", "ipv-core", 6, List.of(), item -> {}, 2, scanExecutor);
+        } finally {
+            scanExecutor.shutdownNow();
+        }
+
+        verify(mockDynamoDbTable, times(6)).scan(any(ScanEnhancedRequest.class));
+        assertTrue(mostRunningScans.get() <= 2);
+    }
+
+    @Test
+    void shouldRejectMaxScanWorkersBelowOne() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        dataStore.scanItemsByAttribute(
+                                "clientId",
+                                "ipv-core",
+                                2,
+                                List.of(),
+                                item -> {},
+                                0,
+                                Runnable::run));
+    }
+
+    private DataStore<SessionItem> createDataStoreWithBatchRetrySleeper(
+            DataStore.Sleeper batchRetrySleeper) {
+        return new DataStore<>(
+                TEST_TABLE_NAME,
+                TableSchema.fromBean(SessionItem.class),
+                mockDynamoDbEnhancedClient,
+                null,
+                batchRetrySleeper);
+    }
 }
@@ -0,0 +1,34 @@
+package uk.gov.di.ipv.cri.common.library.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeEndpointsRequest;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DynamoDbEnhancedClientFactoryTest {
+    @Mock private DynamoDbClient mockDynamoDbClient;
+
+    @Test
+    void shouldCallDescribeEndpointsToWarmUpTheClient() {
+        DynamoDbEnhancedClientFactory.warmUp(mockDynamoDbClient);
+
+        verify(mockDynamoDbClient).describeEndpoints(any(DescribeEndpointsRequest.class));
+    }
+
+    @Test
+    void shouldIgnoreWarmUpFailures() {
+        when(mockDynamoDbClient.describeEndpoints(any(DescribeEndpointsRequest.class)))
+                .thenThrow(DynamoDbException.builder().message("AccessDenied").build());
+
+        assertDoesNotThrow(() -> DynamoDbEnhancedClientFactory.warmUp(mockDynamoDbClient));
+    }
+}
@@ -0,0 +1,62 @@
+package uk.gov.di.ipv.cri.common.library.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryJtiStoreTest {
+    private static final long NOW = 1655203417L;
+    private static final String CLIENT_ID = "ipv-core";
+    @Mock private Clock mockClock;
+
+    @Test
+    void shouldRecordJtiOnlyOnceUntilItExpires() {
+        InMemoryJtiStore jtiStore = new InMemoryJtiStore(mockClock);
+        when(mockClock.instant())
+                .thenReturn(
+                        Instant.ofEpochSecond(NOW),
+                        Instant.ofEpochSecond(NOW + 10),
+                        Instant.ofEpochSecond(NOW + 11));
+
+        assertTrue(jtiStore.recordIfAbsent(CLIENT_ID, "jti", NOW + 10));
+        assertFalse(jtiStore.recordIfAbsent(CLIENT_ID, "jti", NOW + 10));
+        assertTrue(jtiStore.recordIfAbsent(CLIENT_ID, "jti", NOW + 300));
+    }
+
+    @Test
+    void shouldRecordSameJtiSeparatelyForEachClient() {
+        InMemoryJtiStore jtiStore = new InMemoryJtiStore(mockClock);
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(NOW));
+
+        assertTrue(jtiStore.recordIfAbsent(CLIENT_ID, "jti", NOW + 10));
+        assertTrue(jtiStore.recordIfAbsent("other-client", "jti", NOW + 10));
+        assertFalse(jtiStore.recordIfAbsent(CLIENT_ID, "jti", NOW + 10));
+    }
+
+    @Test
+    void shouldSweepExpiredJtisOncePerInterval() {
+        InMemoryJtiStore jtiStore = new InMemoryJtiStore(mockClock);
+        when(mockClock.instant())
+                .thenReturn(
+                        Instant.ofEpochSecond(NOW),
+                        Instant.ofEpochSecond(NOW + 30),
+                        Instant.ofEpochSecond(NOW + 60));
+
+        jtiStore.recordIfAbsent(CLIENT_ID, "first", NOW + 1);
+        jtiStore.recordIfAbsent(CLIENT_ID, "second", NOW + 300);
+        assertEquals(2, jtiStore.size());
+
+        jtiStore.recordIfAbsent(CLIENT_ID, "third", NOW + 300);
+        assertEquals(2, jtiStore.size());
+    }
+}
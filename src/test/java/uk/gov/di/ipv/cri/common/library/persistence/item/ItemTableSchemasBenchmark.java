@@ -0,0 +1,61 @@
+package uk.gov.di.ipv.cri.common.library.persistence.item;
+
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityItem;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Compares building the hand-written schemas with TableSchema.fromBean. Not run as part of the
+// test suite; run the main method on its own, once per order, as the first schema built in a
+// JVM also pays for loading the shared enhanced client classes.
+class ItemTableSchemasBenchmark {
+    private static final int WARM_ITERATIONS = 200;
+
+    public static void main(String[] args) {
+        boolean beanFirst = args.length > 0 && "bean-first".equals(args[0]);
+        if (beanFirst) {
+            runBeanSchemas();
+            runStaticSchemas();
+        } else {
+            runStaticSchemas();
+            runBeanSchemas();
+        }
+    }
+
+    private static void runStaticSchemas() {
+        measure(
+                "static",
+                () -> {
+                    ItemTableSchemas.createSessionItemSchema();
+                    return ItemTableSchemas.createPersonIdentityItemSchema();
+                });
+    }
+
+    private static void runBeanSchemas() {
+        measure(
+                "bean",
+                () -> {
+                    TableSchema.fromBean(SessionItem.class);
+                    return TableSchema.fromBean(PersonIdentityItem.class);
+                });
+    }
+
+    private static void measure(String name, Supplier<TableSchema<?>> schemaFactory) {
+        long startNanos = System.nanoTime();
+        schemaFactory.get();
+        long coldNanos = System.nanoTime() - startNanos;
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < WARM_ITERATIONS; i++) {
+            schemaFactory.get();
+        }
+        long warmNanos = (System.nanoTime() - startNanos) / WARM_ITERATIONS;
+
+        System.out.printf(
+                "%s schemas: first build %d ms, subsequent builds %d us%n",
+                name,
+                TimeUnit.NANOSECONDS.toMillis(coldNanos),
+                TimeUnit.NANOSECONDS.toMicros(warmNanos));
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gov.di.ipv.cri.common.library.persistence.item;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityDateOfBirth;
+import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityItem;
+import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityName;
+import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityNamePart;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class ItemTableSchemasTest {
+
+    @Test
+    void sessionItemSchemaShouldMatchBeanSchema() {
+        SessionItem sessionItem = new SessionItem();
+        sessionItem.setExpiryDate(1650545440L);
+        sessionItem.setCreatedDate(1650541840L);
+        sessionItem.setClientId("ipv-core");
+        sessionItem.setState("state");
+        sessionItem.setRedirectUri(URI.create("https://example.com/callback"));
+        sessionItem.setAuthorizationCode("auth-code");
+        sessionItem.setAuthorizationCodeExpiryDate(1650542440L);
+        sessionItem.setAccessToken("access-token");
+        sessionItem.setAccessTokenExpiryDate(1650543440L);
+        sessionItem.setSubject("subject");
+
+        Map<String, AttributeValue> expected =
+                TableSchema.fromBean(SessionItem.class).itemToMap(sessionItem, false);
+        Map<String, AttributeValue> actual =
+                ItemTableSchemas.SESSION_ITEM.itemToMap(sessionItem, false);
+
+        assertThat(actual, equalTo(expected));
+        SessionItem mappedItem = ItemTableSchemas.SESSION_ITEM.mapToItem(actual);
+        assertThat(mappedItem.getSessionId(), equalTo(sessionItem.getSessionId()));
+        assertThat(mappedItem.getRedirectUri(), equalTo(sessionItem.getRedirectUri()));
+        assertThat(mappedItem.getAccessToken(), equalTo(sessionItem.getAccessToken()));
+        assertThat(
+                mappedItem.getAuthorizationCodeExpiryDate(),
+                equalTo(sessionItem.getAuthorizationCodeExpiryDate()));
+    }
+
+    @Test
+    void personIdentityItemSchemaShouldMatchBeanSchema() {
+        PersonIdentityNamePart namePart = new PersonIdentityNamePart();
+        namePart.setType("GivenName");
+        namePart.setValue("Kenneth");
+        PersonIdentityName name = new PersonIdentityName();
+        name.setNameParts(List.of(namePart));
+        PersonIdentityDateOfBirth dateOfBirth = new PersonIdentityDateOfBirth();
+        dateOfBirth.setValue(LocalDate.of(1965, 7, 8));
+        CanonicalAddress address = new CanonicalAddress();
+        address.setUprn(100120012077L);
+        address.setBuildingNumber("8");
+        address.setStreetName("Hadley Road");
+        address.setAddressLocality("Bath");
+        address.setPostalCode("BA2 5AA");
+        address.setValidFrom(LocalDate.of(2000, 1, 1));
+        PersonIdentityItem personIdentityItem = new PersonIdentityItem();
+        personIdentityItem.setSessionId(UUID.randomUUID());
+        personIdentityItem.setNames(List.of(name));
+        personIdentityItem.setBirthDates(List.of(dateOfBirth));
+        personIdentityItem.setAddresses(List.of(address));
+        personIdentityItem.setExpiryDate(1650545440L);
+
+        Map<String, AttributeValue> expected =
+                TableSchema.fromBean(PersonIdentityItem.class)
+                        .itemToMap(personIdentityItem, false);
+        Map<String, AttributeValue> actual =
+                ItemTableSchemas.PERSON_IDENTITY_ITEM.itemToMap(personIdentityItem, false);
+
+        assertThat(actual, equalTo(expected));
+        PersonIdentityItem mappedItem = ItemTableSchemas.PERSON_IDENTITY_ITEM.mapToItem(actual);
+        assertThat(
+                mappedItem.getNames().get(0).getNameParts().get(0).getValue(),
+                equalTo("Kenneth"));
+        assertThat(mappedItem.getBirthDates().get(0).getValue(), equalTo(LocalDate.of(1965, 7, 8)));
+        assertThat(mappedItem.getAddresses().get(0).getUprn(), equalTo(100120012077L));
+        assertThat(
+                mappedItem.getAddresses().get(0).getValidFrom(),
+                equalTo(LocalDate.of(2000, 1, 1)));
+    }
+}
@@ -12,9 +12,9 @@ import com.nimbusds.oauth2.sdk.auth.PrivateKeyJWT;
 import com.nimbusds.oauth2.sdk.id.ClientID;
 import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
 import com.nimbusds.oauth2.sdk.token.Tokens;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.di.ipv.cri.common.library.exception.AccessTokenValidationException;
@@ -46,7 +46,8 @@ import static org.mockito.Mockito.when;
 class AccessTokenServiceTest {
     @Mock private ConfigurationService mockConfigurationService;
     @Mock private JWTVerifier mockJwtVerifier;
-    @InjectMocks private AccessTokenService accessTokenService;
+    @Mock private JtiReplayCache mockJtiReplayCache;
+    private AccessTokenService accessTokenService;
 
     private final String SAMPLE_JWT =
             "eyJraWQiOiJpcHYtY29yZS1zdHViIiwiYWxnIjoiUlMyNTYifQ.eyJzdWIiOiJpcHYtY29yZS1zdHViIiwiYXVkIjoiaHR0cHM6XC9cL2Rldi5hZGRyZXNzLmNyaS5hY2NvdW50Lmdvdi51ayIsIm5iZiI6MTY1MDU0MTg0MCwic2hhcmVkX2NsYWltcyI6eyJhZGRyZXNzZXMiOlt7InN0cmVldDEiOiI4Iiwic3RyZWV0MiI6IkhBRExFWSBST0FEIiwidG93bkNpdHkiOiJCQVRIIiwiY3VycmVudEFkZHJlc3MiOnRydWUsInBvc3RDb2RlIjoiQkEyIDVBQSJ9XSwibmFtZSI6W3sibmFtZVBhcnRzIjpbeyJ2YWx1ZSI6IktFTk5FVEgiLCJ0eXBlIjoiR2l2ZW5OYW1lIn0seyJ2YWx1ZSI6IkRFQ0VSUVVFSVJBIiwidHlwZSI6IkZhbWlseU5hbWUifV19XSwiYmlydGhEYXRlIjpbeyJ2YWx1ZSI6IjE5NjQtMDktMTkifV0sIkBjb250ZXh0IjpbImh0dHBzOlwvXC93d3cudzMub3JnXC8yMDE4XC9jcmVkZW50aWFsc1wvdjEiLCJodHRwczpcL1wvdm9jYWIubG9uZG9uLmNsb3VkYXBwcy5kaWdpdGFsXC9jb250ZXh0c1wvaWRlbnRpdHktdjEuanNvbmxkIl19LCJpc3MiOiJpcHYtY29yZS1zdHViIiwicmVkaXJlY3RfdXJpIjoiaHR0cHM6XC9cL2RpLWlwdi1jb3JlLXN0dWIubG9uZG9uLmNsb3VkYXBwcy5kaWdpdGFsXC9jYWxsYmFjayIsImV4cCI6MTY1MDU0NTQ0MCwiaWF0IjoxNjUwNTQxODQwLCJqdGkiOiJmNzM0ZTZjZi0xODVhLTQ3N2YtYjQxMi02YWU5ZTc0ODk5NzUifQ.lhizSFXqbQaBXwpnuanI4Ze69B4MSSoqfZLiDDVA7EEwuJSMx9ooB8zFUJORo7SWX-L-qGtM6vjGNhM7GGOLKxZhOZbES7UQu3D7ES5CpNiyZOAUVXnGDEISINF1bYJupS3ujbPfIkOMMoWdWxBpcVzh1TELpzqiYGAeMlSZUmZnIf5i8juysJi8C_DUKklnlF-iGUsCKjXfdNkDz4sx5VYnQu1rDckPUSsK0XKVcxu9lU7cqx39iNuqmkLgsgK1RvG6f1xIOJPUGm2HBfjzM8ZeV3zYlYU5Xa1umlfVptVPrcxMZEm6Iy-cH7d_1XqO1yXFTEzUdDlGL6UlKK7B1T2nAjBCP9YPhh59JQOohu2RnC6gz-kVHisJEPzYp3mAthLJ2KzeYk1BEDRbZo7jWQzYaVXoNgG_gCfDtep5aTKudDtkPtIWFJ3ENEvC2sItXNEFcKQrKkBBcvSmRy8DJE9A3mpPOTp6GaaNrONwbfRvjgcDSDew0i4_mw6Rg-GA0k10nQ874KRjpowzouTJvNCI1CYALIghUD-xNkC7N4TA0zHNiq2eeSI089LdVIsSz_tsGg4YZOKk7HVqmnm81lkeXBfIsUGkH3weI6f4kXZOFQr6YCu5bDqDXgzmSf0ocxprwf1b-OhzWGRmKluSJRMs2hU2Q8-AIVtG5NxrCGE";
@@ -54,6 +55,16 @@ class AccessTokenServiceTest {
     private final String JWT_MISSING_JTI =
             "eyJraWQiOiJpcHYtY29yZS1zdHViIiwiYWxnIjoiUlMyNTYifQ.eyJzdWIiOiJpcHYtY29yZS1zdHViIiwiYXVkIjoiaHR0cHM6XC9cL2Rldi5hZGRyZXNzLmNyaS5hY2NvdW50Lmdvdi51ayIsIm5iZiI6MTY1MDU0MDkyNSwic2hhcmVkX2NsYWltcyI6eyJAY29udGV4dCI6WyJodHRwczpcL1wvd3d3LnczLm9yZ1wvMjAxOFwvY3JlZGVudGlhbHNcL3YxIiwiaHR0cHM6XC9cL3ZvY2FiLmxvbmRvbi5jbG91ZGFwcHMuZGlnaXRhbFwvY29udGV4dHNcL2lkZW50aXR5LXYxLmpzb25sZCJdLCJhZGRyZXNzZXMiOlt7InN0cmVldDEiOiI4Iiwic3RyZWV0MiI6IkhBRExFWSBST0FEIiwidG93bkNpdHkiOiJCQVRIIiwiY3VycmVudEFkZHJlc3MiOnRydWUsInBvc3RDb2RlIjoiQkEyIDVBQSJ9XSwibmFtZSI6W3sibmFtZVBhcnRzIjpbeyJ2YWx1ZSI6IktFTk5FVEgiLCJ0eXBlIjoiR2l2ZW5OYW1lIn0seyJ2YWx1ZSI6IkRFQ0VSUVVFSVJBIiwidHlwZSI6IkZhbWlseU5hbWUifV19XSwiYmlydGhEYXRlIjpbeyJ2YWx1ZSI6IjE5NjQtMDktMTkifV19LCJpc3MiOiJpcHYtY29yZS1zdHViIiwicmVkaXJlY3RfdXJpIjoiaHR0cHM6XC9cL2RpLWlwdi1jb3JlLXN0dWIubG9uZG9uLmNsb3VkYXBwcy5kaWdpdGFsXC9jYWxsYmFjayIsImV4cCI6MTY1MDU0NDUyNSwiaWF0IjoxNjUwNTQwOTI1fQ.qbT49i9CPImPMXj7_U_W5IKmqlyAMidXWcVajMxEsFmPvQCbfkGDJYUun2dnKeyUpkTNXdxBRgTjrl0ZyODxnaIrW4ZZD3dzm-9EoMoFFHKtttmYiucyVM65ZnCaDDu3IUVQulZ-5ADX8bn-pghIqd95NDE_oM8HDlGExcdtZuwOK-fPI4txABGPbgGV6it3HoXaeZr1JyLzJHunTM6mnYOvi50GULh0VPGDsOgNC5Mf61JPkzBvHJbnS9WcKzFIpl7zyfbyDJ9WWl5G88fBdErSjFdI5R0-gc3Cy3m3QYm76dwDfFZax7inbKnK1yyC8cBb8mvr3f5M9s6Mmckd9KFBymYid8M0acTbQi5XPBxOmIr0zeJZ85YQxtyvKswpASoWT6ap-VmglfBQ6MQ0Ql6VydLyYOuo4ZFLNX3uOD4TDEf-TCVKLO2sL3-GEQ4gZP59lHXQr4LD8aGnp_ikWLXBDk2toGcfXcUfA6Ph-67rKWjtDYYqanh4fqM-3dUmUVBkbq0341dHl_Y5igdvkxu7Gbj9X64sdurHE_ALnBTUHyMnjWLfbu_WmYM3qq4CHVrjNw-TgpQZxHHxhHJkUPmVn_gsoaVyb2TPAvecQ0iDbXhzXVR3Jw0tlhZgDtfz-8zEZyae5g6DRMsd6mWMhCx8LFWcsJtbm4_OCQ_Y6zU";
 
+    @BeforeEach
+    void setUp() {
+        accessTokenService =
+                new AccessTokenService(
+                        mockConfigurationService,
+                        mockJwtVerifier,
+                        new ClientConfigurationRegistry(mockConfigurationService),
+                        mockJtiReplayCache);
+    }
+
     @Test
     void shouldThrowExceptionForMissingJTI()
             throws AccessTokenValidationException, SessionValidationException,
@@ -345,6 +356,43 @@ class AccessTokenServiceTest {
                 .verifyAccessTokenJWT(getSSMConfigMap(), signedJWT, new ClientID(clientID));
     }
 
+    @Test
+    void shouldThrowExceptionWhenClientAssertionJtiIsReplayed()
+            throws SessionValidationException, ClientConfigurationException {
+        String authCodeValue = "12345";
+        String clientID = "ipv-core-stub";
+        String tokenRequestBody =
+                String.format(
+                        "code=%s"
+                                + "&client_assertion=%s"
+                                + "&redirect_uri=https://www.example/com/callback"
+                                + "&client_assertion_type=%s"
+                                + "&client_id=%s"
+                                + "&grant_type=authorization_code",
+                        authCodeValue,
+                        SAMPLE_JWT,
+                        JWTAuthentication.CLIENT_ASSERTION_TYPE,
+                        clientID);
+        TokenRequest tokenRequest = accessTokenService.createTokenRequest(tokenRequestBody);
+        SessionItem sessionItem = new SessionItem();
+        sessionItem.setAuthorizationCode(authCodeValue);
+        sessionItem.setClientId(clientID);
+        sessionItem.setRedirectUri(URI.create("https://www.example/com/callback"));
+        when(mockConfigurationService.getParametersForPath(
+                        "/clients/" + clientID + "/jwtAuthentication"))
+                .thenReturn(getSSMConfigMap());
+        when(mockJtiReplayCache.isReplay(
+                        clientID, "f734e6cf-185a-477f-b412-6ae9e7489975", 1650545440L))
+                .thenReturn(true);
+
+        AccessTokenValidationException exception =
+                assertThrows(
+                        AccessTokenValidationException.class,
+                        () -> accessTokenService.validateTokenRequest(tokenRequest, sessionItem));
+
+        assertThat(exception.getMessage(), containsString("jti has already been used"));
+    }
+
     @Test
     void shouldThrowExceptionForMissingClientConfiguration()
             throws AccessTokenValidationException, SessionValidationException,
@@ -0,0 +1,54 @@
+package uk.gov.di.ipv.cri.common.library.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClientConfigurationRegistryTest {
+    private static final String CLIENT_ID = "ipv-core-stub";
+    private static final String CLIENT_CONFIG_PATH = "/clients/ipv-core-stub/jwtAuthentication";
+    @Mock private ConfigurationService mockConfigurationService;
+    private ClientConfigurationRegistry clientConfigurationRegistry;
+
+    @BeforeEach
+    void setUp() {
+        clientConfigurationRegistry = new ClientConfigurationRegistry(mockConfigurationService);
+    }
+
+    @Test
+    void shouldReturnClientConfigurationFromConfigurationService() {
+        Map<String, String> clientConfig = Map.of("audience", "audience", "issuer", CLIENT_ID);
+        when(mockConfigurationService.getParametersForPath(CLIENT_CONFIG_PATH))
+                .thenReturn(clientConfig);
+
+        assertEquals(
+                Optional.of(clientConfig),
+                clientConfigurationRegistry.getClientAuthenticationConfig(CLIENT_ID));
+    }
+
+    @Test
+    void shouldReturnEmptyForUnknownClients() {
+        when(mockConfigurationService.getParametersForPath(CLIENT_CONFIG_PATH))
+                .thenReturn(Map.of());
+
+        assertTrue(clientConfigurationRegistry.getClientAuthenticationConfig(CLIENT_ID).isEmpty());
+    }
+
+    @Test
+    void shouldInvalidateClientConfigurationPath() {
+        clientConfigurationRegistry.invalidate(CLIENT_ID);
+
+        verify(mockConfigurationService).invalidateParametersForPath(CLIENT_CONFIG_PATH);
+    }
+}
@@ -9,9 +9,17 @@ import software.amazon.lambda.powertools.parameters.SSMProvider;
 import software.amazon.lambda.powertools.parameters.SecretsProvider;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -75,4 +83,154 @@ class ConfigurationServiceTest {
                 .thenReturn(String.valueOf(sessionTtl));
         assertEquals(sessionTtl, configurationService.getSessionTtl());
     }
+
+    @Test
+    void shouldServeCachedParameterValueWithinTtl() {
+        configurationService =
+                new ConfigurationService(
+                        mockSsmProvider,
+                        mockSecretsProvider,
+                        TEST_STACK_NAME,
+                        mockClock,
+                        ParameterCacheConfig.builder().defaultTtl(Duration.ofMinutes(5)).build());
+        String fullParamName =
+                String.format(
+                        PARAM_NAME_FORMAT,
+                        TEST_STACK_NAME,
+                        ConfigurationService.SSMParameterName.MAXIMUM_JWT_TTL.parameterName);
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(1655203417));
+        when(mockSsmProvider.get(fullParamName)).thenReturn("300");
+
+        assertEquals(300, configurationService.getMaxJwtTtl());
+        assertEquals(300, configurationService.getMaxJwtTtl());
+        assertEquals(300, configurationService.getMaxJwtTtl());
+
+        verify(mockSsmProvider, times(1)).get(fullParamName);
+        assertEquals(2, configurationService.getParameterCacheHitCount());
+        assertEquals(1, configurationService.getParameterCacheMissCount());
+    }
+
+    @Test
+    void shouldRefreshCachedParameterValueUsingPerParameterTtl() {
+        String paramName = "param-name";
+        configurationService =
+                new ConfigurationService(
+                        mockSsmProvider,
+                        mockSecretsProvider,
+                        TEST_STACK_NAME,
+                        mockClock,
+                        ParameterCacheConfig.builder()
+                                .defaultTtl(Duration.ofMinutes(5))
+                                .ttl(paramName, Duration.ofSeconds(10))
+                                .build());
+        String fullParamName = String.format(PARAM_NAME_FORMAT, TEST_STACK_NAME, paramName);
+        when(mockClock.instant())
+                .thenReturn(
+                        Instant.ofEpochSecond(1655203417), Instant.ofEpochSecond(1655203427));
+        when(mockSsmProvider.get(fullParamName)).thenReturn("first-value", "second-value");
+
+        assertEquals("first-value", configurationService.getParameterValue(paramName));
+        assertEquals("second-value", configurationService.getParameterValue(paramName));
+
+        verify(mockSsmProvider, times(2)).get(fullParamName);
+        assertEquals(1, configurationService.getParameterCacheRefreshCount());
+    }
+
+    @Test
+    void shouldNotCacheParameterValuesByDefault() {
+        String paramName = "param-name";
+        String fullParamName = String.format(PARAM_NAME_FORMAT, TEST_STACK_NAME, paramName);
+        when(mockSsmProvider.get(fullParamName)).thenReturn("param-value");
+
+        configurationService.getParameterValue(paramName);
+        configurationService.getParameterValue(paramName);
+
+        verify(mockSsmProvider, times(2)).get(fullParamName);
+        assertEquals(0, configurationService.getParameterCacheHitCount());
+    }
+
+    @Test
+    void shouldServeParametersFromCacheAfterPrefetch() {
+        configurationService =
+                new ConfigurationService(
+                        mockSsmProvider,
+                        mockSecretsProvider,
+                        TEST_STACK_NAME,
+                        mockClock,
+                        ParameterCacheConfig.builder().defaultTtl(Duration.ofMinutes(5)).build());
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(1655203417));
+        when(mockSsmProvider.recursive()).thenReturn(mockSsmProvider);
+        when(mockSsmProvider.getMultiple("/" + TEST_STACK_NAME))
+                .thenReturn(
+                        Map.of(
+                                "SessionTtl", "7200",
+                                "verifiable-credential/issuer", "https://issuer",
+                                "clients/ipv-core/jwtAuthentication/issuer", "ipv-core",
+                                "clients/ipv-core/jwtAuthentication/audience", "audience",
+                                "clients/ipv-core/redirectUri", "https://redirect"));
+
+        configurationService.prefetch(List.of("/clients"));
+
+        assertEquals(7200, configurationService.getSessionTtl());
+        assertEquals("https://issuer", configurationService.getVerifiableCredentialIssuer());
+        assertEquals(
+                Map.of("issuer", "ipv-core", "audience", "audience"),
+                configurationService.getParametersForPath("/clients/ipv-core/jwtAuthentication"));
+        assertEquals(
+                Map.of(
+                        "jwtAuthentication/issuer", "ipv-core",
+                        "jwtAuthentication/audience", "audience",
+                        "redirectUri", "https://redirect"),
+                configurationService.getParametersForPath("/clients/ipv-core"));
+        verify(mockSsmProvider, never()).get(anyString());
+        verify(mockSsmProvider, times(1)).getMultiple(anyString());
+    }
+
+    @Test
+    void shouldReloadParametersForPathAfterInvalidation() {
+        configurationService =
+                new ConfigurationService(
+                        mockSsmProvider,
+                        mockSecretsProvider,
+                        TEST_STACK_NAME,
+                        mockClock,
+                        ParameterCacheConfig.builder().defaultTtl(Duration.ofMinutes(5)).build());
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(1655203417));
+        when(mockSsmProvider.recursive()).thenReturn(mockSsmProvider);
+        when(mockSsmProvider.getMultiple(
+                        "/" + TEST_STACK_NAME + "/clients/ipv-core/jwtAuthentication"))
+                .thenReturn(Map.of("audience", "old-audience"), Map.of("audience", "audience"));
+
+        configurationService.getParametersForPath("/clients/ipv-core/jwtAuthentication");
+        configurationService.invalidateParametersForPath("/clients/ipv-core/jwtAuthentication/");
+
+        assertEquals(
+                Map.of("audience", "audience"),
+                configurationService.getParametersForPath("/clients/ipv-core/jwtAuthentication"));
+    }
+
+    @Test
+    void shouldNotLetCallersChangeCachedParametersForPath() {
+        configurationService =
+                new ConfigurationService(
+                        mockSsmProvider,
+                        mockSecretsProvider,
+                        TEST_STACK_NAME,
+                        mockClock,
+                        ParameterCacheConfig.builder().defaultTtl(Duration.ofMinutes(5)).build());
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(1655203417));
+        when(mockSsmProvider.recursive()).thenReturn(mockSsmProvider);
+        when(mockSsmProvider.getMultiple(
+                        "/" + TEST_STACK_NAME + "/clients/ipv-core/jwtAuthentication"))
+                .thenReturn(new HashMap<>(Map.of("audience", "audience")));
+
+        Map<String, String> parameters =
+                configurationService.getParametersForPath("/clients/ipv-core/jwtAuthentication");
+
+        assertThrows(
+                UnsupportedOperationException.class, () -> parameters.put("audience", "changed"));
+        assertEquals(
+                Map.of("audience", "audience"),
+                configurationService.getParametersForPath("/clients/ipv-core/jwtAuthentication"));
+    }
 }
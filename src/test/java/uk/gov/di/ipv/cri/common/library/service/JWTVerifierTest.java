@@ -5,7 +5,9 @@ import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.crypto.ECDSASigner;
 import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.impl.ECDSA;
 import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import com.nimbusds.oauth2.sdk.id.ClientID;
@@ -102,6 +104,7 @@ class JWTVerifierTest {
         assertEquals(
                 "JWT iss claim has value incorrect-issuer-url, must be ipv-core-stub",
                 exception.getMessage());
+        assertEquals(0, jwtVerifier.getPublicKeyCacheMissCount());
     }
 
     @Test
@@ -183,6 +186,125 @@ class JWTVerifierTest {
                 () -> jwtVerifier.verifyAccessTokenJWT(clientConfigMap, signedJWT, CLIENT_ID));
     }
 
+    @Test
+    void shouldValidateJWTWithDerEncodedECSignature() throws JOSEException, ParseException {
+        Map<String, String> clientConfigMap = getECSSMClientConfig();
+        SignedJWT signedJWT =
+                new SignedJWT(
+                        new JWSHeader.Builder(JWSAlgorithm.ES256).build(),
+                        new JWTClaimsSet.Builder()
+                                .jwtID(UUID.randomUUID().toString())
+                                .issuer(CLIENT_ID.getValue())
+                                .notBeforeTime(Date.from(now))
+                                .audience("https://address.cri.account.gov.uk")
+                                .subject(CLIENT_ID.getValue())
+                                .expirationTime(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                                .build());
+        signedJWT.sign(new ECDSASigner(getECPrivateKey()));
+        SignedJWT derSignedJWT =
+                new SignedJWT(
+                        signedJWT.getHeader().toBase64URL(),
+                        signedJWT.getPayload().toBase64URL(),
+                        Base64URL.encode(
+                                ECDSA.transcodeSignatureToDER(signedJWT.getSignature().decode())));
+
+        assertDoesNotThrow(
+                () -> jwtVerifier.verifyAccessTokenJWT(clientConfigMap, derSignedJWT, CLIENT_ID));
+    }
+
+    @Test
+    void shouldNotReuseClaimsVerifierAcrossClients() throws JOSEException, ParseException {
+        Map<String, String> clientConfigMap = getECSSMClientConfig();
+        SignedJWT signedJWT =
+                new SignedJWT(
+                        new JWSHeader.Builder(JWSAlgorithm.ES256).build(),
+                        new JWTClaimsSet.Builder()
+                                .jwtID(UUID.randomUUID().toString())
+                                .issuer(CLIENT_ID.getValue())
+                                .notBeforeTime(Date.from(now))
+                                .audience("https://address.cri.account.gov.uk")
+                                .subject(CLIENT_ID.getValue())
+                                .expirationTime(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                                .build());
+        signedJWT.sign(new ECDSASigner(getECPrivateKey()));
+        ClientID otherClientId = new ClientID("other-client");
+
+        assertDoesNotThrow(
+                () -> jwtVerifier.verifyAccessTokenJWT(clientConfigMap, signedJWT, CLIENT_ID));
+        SessionValidationException exception =
+                assertThrows(
+                        SessionValidationException.class,
+                        () ->
+                                jwtVerifier.verifyAccessTokenJWT(
+                                        clientConfigMap, signedJWT, otherClientId));
+        assertEquals(
+                "JWT iss claim has value ipv-core-stub, must be other-client",
+                exception.getMessage());
+    }
+
+    @Test
+    void shouldReuseVerifierForRepeatVerifications() throws JOSEException, ParseException {
+        Map<String, String> clientConfigMap = getECSSMClientConfig();
+        ECDSASigner ecdsaSigner = new ECDSASigner(getECPrivateKey());
+
+        for (int i = 0; i < 3; i++) {
+            SignedJWT signedJWT =
+                    new SignedJWT(
+                            new JWSHeader.Builder(JWSAlgorithm.ES256).build(),
+                            new JWTClaimsSet.Builder()
+                                    .jwtID(UUID.randomUUID().toString())
+                                    .issuer(CLIENT_ID.getValue())
+                                    .notBeforeTime(Date.from(now))
+                                    .audience("https://address.cri.account.gov.uk")
+                                    .subject(CLIENT_ID.getValue())
+                                    .expirationTime(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                                    .build());
+            signedJWT.sign(ecdsaSigner);
+
+            assertDoesNotThrow(
+                    () -> jwtVerifier.verifyAccessTokenJWT(clientConfigMap, signedJWT, CLIENT_ID));
+        }
+
+        assertEquals(1, jwtVerifier.getPublicKeyCacheMissCount());
+        assertEquals(2, jwtVerifier.getPublicKeyCacheHitCount());
+    }
+
+    @Test
+    void shouldReuseClaimsVerifierForSameTypeIssuerAndAudience()
+            throws JOSEException, ParseException {
+        Map<String, String> clientConfigMap = getECSSMClientConfig();
+        SignedJWT signedJWT =
+                new SignedJWT(
+                        new JWSHeader.Builder(JWSAlgorithm.ES256).build(),
+                        new JWTClaimsSet.Builder()
+                                .jwtID(UUID.randomUUID().toString())
+                                .issuer(CLIENT_ID.getValue())
+                                .notBeforeTime(Date.from(now))
+                                .audience("https://address.cri.account.gov.uk")
+                                .subject(CLIENT_ID.getValue())
+                                .expirationTime(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                                .build());
+        signedJWT.sign(new ECDSASigner(getECPrivateKey()));
+
+        assertDoesNotThrow(
+                () -> jwtVerifier.verifyAccessTokenJWT(clientConfigMap, signedJWT, CLIENT_ID));
+        assertDoesNotThrow(
+                () -> jwtVerifier.verifyAccessTokenJWT(clientConfigMap, signedJWT, CLIENT_ID));
+        assertEquals(1, jwtVerifier.getClaimsVerifierCacheMissCount());
+        assertEquals(1, jwtVerifier.getClaimsVerifierCacheHitCount());
+
+        assertThrows(
+                SessionValidationException.class,
+                () -> jwtVerifier.verifyAuthorizationJWT(clientConfigMap, signedJWT));
+        assertThrows(
+                SessionValidationException.class,
+                () ->
+                        jwtVerifier.verifyAccessTokenJWT(
+                                clientConfigMap, signedJWT, new ClientID("other-client")));
+        assertEquals(3, jwtVerifier.getClaimsVerifierCacheMissCount());
+        assertEquals(1, jwtVerifier.getClaimsVerifierCacheHitCount());
+    }
+
     @Test
     void shouldThrowValidationExceptionWhenJWTIsExpired()
             throws InvalidKeySpecException, NoSuchAlgorithmException, JOSEException {
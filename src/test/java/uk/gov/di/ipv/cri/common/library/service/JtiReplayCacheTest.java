@@ -0,0 +1,95 @@
+package uk.gov.di.ipv.cri.common.library.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.di.ipv.cri.common.library.persistence.InMemoryJtiStore;
+import uk.gov.di.ipv.cri.common.library.persistence.JtiStore;
+
+import java.time.Clock;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JtiReplayCacheTest {
+    private static final long NOW = 1655203417L;
+    private static final long EXPIRY = NOW + 300;
+    private static final String CLIENT_ID = "ipv-core";
+    @Mock private Clock mockClock;
+    @Mock private JtiStore mockJtiStore;
+
+    @Test
+    void shouldAcceptFirstUseOfJti() {
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(NOW));
+        JtiReplayCache jtiReplayCache = new JtiReplayCache(mockJtiStore, mockClock, 100);
+        when(mockJtiStore.recordIfAbsent(CLIENT_ID, "jti", EXPIRY)).thenReturn(true);
+
+        assertFalse(jtiReplayCache.isReplay(CLIENT_ID, "jti", EXPIRY));
+        verify(mockJtiStore).recordIfAbsent(CLIENT_ID, "jti", EXPIRY);
+    }
+
+    @Test
+    void shouldRejectLocallyKnownReplayWithoutCallingStore() {
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(NOW));
+        JtiReplayCache jtiReplayCache = new JtiReplayCache(mockJtiStore, mockClock, 100);
+        when(mockJtiStore.recordIfAbsent(CLIENT_ID, "jti", EXPIRY)).thenReturn(true);
+
+        jtiReplayCache.isReplay(CLIENT_ID, "jti", EXPIRY);
+
+        assertTrue(jtiReplayCache.isReplay(CLIENT_ID, "jti", EXPIRY));
+        verify(mockJtiStore, times(1)).recordIfAbsent(CLIENT_ID, "jti", EXPIRY);
+    }
+
+    @Test
+    void shouldNotTreatAnotherClientsJtiAsReplay() {
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(NOW));
+        JtiReplayCache jtiReplayCache =
+                new JtiReplayCache(new InMemoryJtiStore(mockClock), mockClock, 100);
+
+        assertFalse(jtiReplayCache.isReplay(CLIENT_ID, "jti", EXPIRY));
+        assertFalse(jtiReplayCache.isReplay("other-client", "jti", EXPIRY));
+        assertTrue(jtiReplayCache.isReplay(CLIENT_ID, "jti", EXPIRY));
+    }
+
+    @Test
+    void shouldRejectReplayDetectedByStore() {
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(NOW));
+        JtiReplayCache jtiReplayCache = new JtiReplayCache(mockJtiStore, mockClock, 100);
+        when(mockJtiStore.recordIfAbsent(CLIENT_ID, "jti", EXPIRY)).thenReturn(false);
+
+        assertTrue(jtiReplayCache.isReplay(CLIENT_ID, "jti", EXPIRY));
+    }
+
+    @Test
+    void shouldNotTreatExpiredJtiAsReplay() {
+        JtiReplayCache jtiReplayCache =
+                new JtiReplayCache(new InMemoryJtiStore(mockClock), mockClock, 100);
+        when(mockClock.instant())
+                .thenReturn(
+                        Instant.ofEpochSecond(NOW),
+                        Instant.ofEpochSecond(NOW),
+                        Instant.ofEpochSecond(EXPIRY + 1));
+
+        assertFalse(jtiReplayCache.isReplay(CLIENT_ID, "jti", EXPIRY));
+        assertFalse(jtiReplayCache.isReplay(CLIENT_ID, "jti", EXPIRY + 300));
+    }
+
+    @Test
+    void shouldKeepRejectingReplaysOnceLocalEntriesAreFull() {
+        when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(NOW));
+        JtiReplayCache jtiReplayCache =
+                new JtiReplayCache(new InMemoryJtiStore(mockClock), mockClock, 2);
+
+        assertFalse(jtiReplayCache.isReplay(CLIENT_ID, "first", EXPIRY));
+        assertFalse(jtiReplayCache.isReplay(CLIENT_ID, "second", EXPIRY));
+        assertFalse(jtiReplayCache.isReplay(CLIENT_ID, "third", EXPIRY));
+
+        assertTrue(jtiReplayCache.isReplay(CLIENT_ID, "first", EXPIRY));
+    }
+}
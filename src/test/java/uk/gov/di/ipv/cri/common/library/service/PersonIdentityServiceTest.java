@@ -7,10 +7,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.di.ipv.cri.common.library.domain.personidentity.PersonIdentity;
 import uk.gov.di.ipv.cri.common.library.domain.personidentity.SharedClaims;
+import uk.gov.di.ipv.cri.common.library.persistence.AsyncDataStore;
 import uk.gov.di.ipv.cri.common.library.persistence.DataStore;
 import uk.gov.di.ipv.cri.common.library.persistence.item.personidentity.PersonIdentityItem;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
@@ -23,6 +27,7 @@ class PersonIdentityServiceTest {
     @Mock private PersonIdentityMapper mockPersonIdentityMapper;
     @Mock private ConfigurationService mockConfigurationService;
     @Mock private DataStore<PersonIdentityItem> mockPersonIdentityDataStore;
+    @Mock private AsyncDataStore<PersonIdentityItem> mockAsyncPersonIdentityDataStore;
     @InjectMocks private PersonIdentityService personIdentityService;
 
     @Test
@@ -62,4 +67,39 @@ class PersonIdentityServiceTest {
         verify(mockPersonIdentityMapper).mapToPersonIdentity(testPersonIdentityItem);
         assertEquals(testPersonIdentity, retrievedPersonIdentity);
     }
+
+    @Test
+    void shouldGetPersonIdentityAsynchronously() throws Exception {
+        PersonIdentityItem testPersonIdentityItem = new PersonIdentityItem();
+        PersonIdentity testPersonIdentity = new PersonIdentity();
+
+        when(mockAsyncPersonIdentityDataStore.getItem(String.valueOf(TEST_SESSION_ID)))
+                .thenReturn(CompletableFuture.completedFuture(testPersonIdentityItem));
+        when(mockPersonIdentityMapper.mapToPersonIdentity(testPersonIdentityItem))
+                .thenReturn(testPersonIdentity);
+
+        PersonIdentity retrievedPersonIdentity =
+                personIdentityService.getPersonIdentityAsync(TEST_SESSION_ID).get();
+
+        assertEquals(testPersonIdentity, retrievedPersonIdentity);
+    }
+
+    @Test
+    void shouldGetPersonIdentitiesForMultipleSessions() {
+        UUID otherSessionId = UUID.randomUUID();
+        PersonIdentityItem testPersonIdentityItem = new PersonIdentityItem();
+        testPersonIdentityItem.setSessionId(TEST_SESSION_ID);
+        PersonIdentity testPersonIdentity = new PersonIdentity();
+
+        when(mockPersonIdentityDataStore.getItems(
+                        List.of(String.valueOf(TEST_SESSION_ID), String.valueOf(otherSessionId))))
+                .thenReturn(List.of(testPersonIdentityItem));
+        when(mockPersonIdentityMapper.mapToPersonIdentity(testPersonIdentityItem))
+                .thenReturn(testPersonIdentity);
+
+        Map<UUID, PersonIdentity> personIdentities =
+                personIdentityService.getPersonIdentities(List.of(TEST_SESSION_ID, otherSessionId));
+
+        assertEquals(Map.of(TEST_SESSION_ID, testPersonIdentity), personIdentities);
+    }
 }
@@ -0,0 +1,99 @@
+package uk.gov.di.ipv.cri.common.library.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.di.ipv.cri.common.library.persistence.item.SessionItem;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionCacheTest {
+    private static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z");
+
+    @Mock private Clock mockClock;
+
+    private SessionItem sessionItem;
+
+    @BeforeEach
+    void setUp() {
+        sessionItem = new SessionItem();
+        sessionItem.setClientId("ipv-core");
+        sessionItem.setAuthorizationCode("auth-code");
+        sessionItem.setAccessToken("Bearer access-token");
+        sessionItem.setExpiryDate(NOW.plusSeconds(3600).getEpochSecond());
+    }
+
+    @Test
+    void shouldReturnCopiesOfCachedSessionsBySessionIdAndSecondaryKeys() {
+        SessionCache cache = new SessionCache(2, Duration.ofSeconds(5), mockClock);
+        when(mockClock.instant()).thenReturn(NOW);
+        cache.put(sessionItem);
+
+        SessionItem cachedItem = cache.get(sessionItem.getSessionId().toString());
+
+        assertNotSame(sessionItem, cachedItem);
+        assertEquals(sessionItem.getSessionId(), cachedItem.getSessionId());
+        assertEquals("ipv-core", cachedItem.getClientId());
+        assertEquals("Bearer access-token", cachedItem.getAccessToken());
+        assertEquals(sessionItem.getExpiryDate(), cachedItem.getExpiryDate());
+        assertEquals(
+                sessionItem.getSessionId(),
+                cache.getByAuthorizationCode("auth-code").getSessionId());
+        assertEquals(
+                sessionItem.getSessionId(),
+                cache.getByAccessToken("Bearer access-token").getSessionId());
+        assertNull(cache.getByAccessToken("Bearer other-token"));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void shouldExpireSessionsAfterTtl() {
+        SessionCache cache = new SessionCache(2, Duration.ofSeconds(5), mockClock);
+        when(mockClock.instant()).thenReturn(NOW, NOW.plusSeconds(5));
+        cache.put(sessionItem);
+
+        assertNull(cache.get(sessionItem.getSessionId().toString()));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldExpireSessionsWhenTheSessionExpiresBeforeTheTtl() {
+        SessionCache cache = new SessionCache(2, Duration.ofSeconds(5), mockClock);
+        sessionItem.setExpiryDate(NOW.plusSeconds(2).getEpochSecond());
+        when(mockClock.instant()).thenReturn(NOW, NOW.plusSeconds(2));
+        cache.put(sessionItem);
+
+        assertNull(cache.get(sessionItem.getSessionId().toString()));
+    }
+
+    @Test
+    void shouldMissSecondaryKeysOfInvalidatedSessions() {
+        SessionCache cache = new SessionCache(2, Duration.ofSeconds(5), mockClock);
+        when(mockClock.instant()).thenReturn(NOW);
+        cache.put(sessionItem);
+
+        cache.invalidate(sessionItem.getSessionId().toString());
+
+        assertNull(cache.getByAuthorizationCode("auth-code"));
+        assertNull(cache.getByAccessToken("Bearer access-token"));
+    }
+
+    @Test
+    void shouldRejectNonPositiveTtl() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new SessionCache(2, Duration.ZERO, mockClock));
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gov.di.ipv.cri.common.library.service;
+
+import com.nimbusds.oauth2.sdk.token.AccessToken;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import org.mockito.stubbing.Answer;
+import uk.gov.di.ipv.cri.common.library.persistence.DataStore;
+import uk.gov.di.ipv.cri.common.library.persistence.item.SessionItem;
+import uk.gov.di.ipv.cri.common.library.util.ListUtil;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Compares the index-and-refetch session lookups with the single read used when the indexes
+// project all attributes. Not run as part of the test suite; run the main method with the
+// simulated DynamoDB round trip in milliseconds as the first argument (default 5).
+class SessionLookupBenchmark {
+    private static final int LOOKUPS = 200;
+
+    public static void main(String[] args) {
+        long roundTripMillis = args.length > 0 ? Long.parseLong(args[0]) : 5L;
+
+        SessionItem sessionItem = new SessionItem();
+        sessionItem.setSessionId(UUID.randomUUID());
+        sessionItem.setExpiryDate(Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond());
+        sessionItem.setAccessTokenExpiryDate(
+                Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond());
+        sessionItem.setAuthorizationCodeExpiryDate(
+                Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond());
+
+        measure("index and refetch", false, sessionItem, roundTripMillis);
+        measure("all projection", true, sessionItem, roundTripMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void measure(
+            String name, boolean projectionAll, SessionItem sessionItem, long roundTripMillis) {
+        DataStore<SessionItem> dataStore = mock(DataStore.class);
+        when(dataStore.streamItemsByIndex(anyString(), anyString(), anyInt()))
+                .thenAnswer(roundTrip(roundTripMillis, () -> Stream.of(sessionItem)));
+        when(dataStore.getItem(anyString()))
+                .thenAnswer(roundTrip(roundTripMillis, () -> sessionItem));
+        ConfigurationService configurationService = mock(ConfigurationService.class);
+        when(configurationService.isAccessTokenIndexProjectionAll()).thenReturn(projectionAll);
+        when(configurationService.isAuthorizationCodeIndexProjectionAll())
+                .thenReturn(projectionAll);
+
+        SessionService sessionService =
+                new SessionService(
+                        dataStore, configurationService, Clock.systemUTC(), new ListUtil());
+        AccessToken accessToken = new BearerAccessToken();
+        String authorizationCode = UUID.randomUUID().toString();
+
+        time(
+                name + " by access token",
+                roundTripMillis,
+                () -> sessionService.getSessionByAccessToken(accessToken));
+        time(
+                name + " by authorization code",
+                roundTripMillis,
+                () -> sessionService.getSessionByAuthorisationCode(authorizationCode));
+    }
+
+    private static void time(String name, long roundTripMillis, Runnable lookup) {
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookup.run();
+        }
+        long lookupNanos = (System.nanoTime() - startNanos) / LOOKUPS;
+
+        System.out.printf(
+                "%s: %d us per lookup with a %d ms round trip%n",
+                name, TimeUnit.NANOSECONDS.toMicros(lookupNanos), roundTripMillis);
+    }
+
+    private static <T> Answer<T> roundTrip(long roundTripMillis, Supplier<T> result) {
+        return invocation -> {
+            Thread.sleep(roundTripMillis);
+            return result.get();
+        };
+    }
+}
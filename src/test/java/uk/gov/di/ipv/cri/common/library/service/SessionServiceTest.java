@@ -10,28 +10,42 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
 import uk.gov.di.ipv.cri.common.library.domain.SessionRequest;
 import uk.gov.di.ipv.cri.common.library.exception.AccessTokenExpiredException;
 import uk.gov.di.ipv.cri.common.library.exception.AuthorizationCodeExpiredException;
 import uk.gov.di.ipv.cri.common.library.exception.SessionExpiredException;
 import uk.gov.di.ipv.cri.common.library.exception.SessionNotFoundException;
+import uk.gov.di.ipv.cri.common.library.persistence.AsyncDataStore;
 import uk.gov.di.ipv.cri.common.library.persistence.DataStore;
 import uk.gov.di.ipv.cri.common.library.persistence.item.SessionItem;
 import uk.gov.di.ipv.cri.common.library.util.ListUtil;
 
 import java.net.URI;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -42,6 +56,7 @@ class SessionServiceTest {
     private SessionService sessionService;
 
     @Mock private DataStore<SessionItem> mockDataStore;
+    @Mock private AsyncDataStore<SessionItem> mockAsyncDataStore;
     @Mock private ConfigurationService mockConfigurationService;
     @Mock private ListUtil mockListUtil;
     @Captor private ArgumentCaptor<SessionItem> sessionItemArgumentCaptor;
@@ -96,10 +111,11 @@ class SessionServiceTest {
         item.setExpiryDate(Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond());
         item.setAuthorizationCodeExpiryDate(
                 Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond());
-        List<SessionItem> items = List.of(item);
+        Stream<SessionItem> items = Stream.of(item);
 
         when(mockListUtil.getOneItemOrThrowError(items)).thenReturn(item);
-        when(mockDataStore.getItemByIndex(SessionItem.AUTHORIZATION_CODE_INDEX, authCodeValue))
+        when(mockDataStore.streamItemsByIndex(
+                        SessionItem.AUTHORIZATION_CODE_INDEX, authCodeValue, 2))
                 .thenReturn(items);
         when(mockDataStore.getItem(item.getSessionId().toString())).thenReturn(item);
 
@@ -118,10 +134,11 @@ class SessionServiceTest {
         item.setAccessToken(serialisedAccessToken);
         item.setExpiryDate(Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond());
         item.setAccessTokenExpiryDate(Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond());
-        List<SessionItem> items = List.of(item);
+        Stream<SessionItem> items = Stream.of(item);
 
         when(mockListUtil.getOneItemOrThrowError(items)).thenReturn(item);
-        when(mockDataStore.getItemByIndex(SessionItem.ACCESS_TOKEN_INDEX, serialisedAccessToken))
+        when(mockDataStore.streamItemsByIndex(
+                        SessionItem.ACCESS_TOKEN_INDEX, serialisedAccessToken, 2))
                 .thenReturn(items);
         when(mockDataStore.getItem(item.getSessionId().toString())).thenReturn(item);
 
@@ -130,6 +147,126 @@ class SessionServiceTest {
         assertThat(item.getAccessToken(), equalTo(sessionItem.getAccessToken()));
     }
 
+    @Test
+    void shouldGetSessionItemByTokenIndexInOneReadWhenIndexProjectsAllAttributes() {
+        AccessToken accessToken = new BearerAccessToken();
+        String serialisedAccessToken = accessToken.toAuthorizationHeader();
+        SessionItem item = new SessionItem();
+        item.setSessionId(UUID.randomUUID());
+        item.setAccessToken(serialisedAccessToken);
+        item.setExpiryDate(fixedInstant.plus(1, ChronoUnit.DAYS).getEpochSecond());
+        item.setAccessTokenExpiryDate(fixedInstant.plus(1, ChronoUnit.DAYS).getEpochSecond());
+        Stream<SessionItem> items = Stream.of(item);
+
+        when(mockConfigurationService.isAccessTokenIndexProjectionAll()).thenReturn(true);
+        when(mockListUtil.getOneItemOrThrowError(items)).thenReturn(item);
+        when(mockDataStore.streamItemsByIndex(
+                        SessionItem.ACCESS_TOKEN_INDEX, serialisedAccessToken, 2))
+                .thenReturn(items);
+
+        SessionItem sessionItem = sessionService.getSessionByAccessToken(accessToken);
+
+        assertThat(sessionItem, equalTo(item));
+        verify(mockDataStore, never()).getItem(anyString());
+    }
+
+    @Test
+    void shouldThrowWhenSessionFromAllProjectionTokenIndexHasExpired() {
+        AccessToken accessToken = new BearerAccessToken();
+        String serialisedAccessToken = accessToken.toAuthorizationHeader();
+        SessionItem item = new SessionItem();
+        item.setSessionId(UUID.randomUUID());
+        item.setExpiryDate(fixedInstant.minus(1, ChronoUnit.HOURS).getEpochSecond());
+        Stream<SessionItem> items = Stream.of(item);
+
+        when(mockConfigurationService.isAccessTokenIndexProjectionAll()).thenReturn(true);
+        when(mockListUtil.getOneItemOrThrowError(items)).thenReturn(item);
+        when(mockDataStore.streamItemsByIndex(
+                        SessionItem.ACCESS_TOKEN_INDEX, serialisedAccessToken, 2))
+                .thenReturn(items);
+
+        assertThrows(
+                SessionExpiredException.class,
+                () -> sessionService.getSessionByAccessToken(accessToken));
+    }
+
+    @Test
+    void shouldGetSessionItemByAuthorizationCodeIndexInOneReadWhenIndexProjectsAllAttributes() {
+        String authCodeValue = UUID.randomUUID().toString();
+        SessionItem item = new SessionItem();
+        item.setSessionId(UUID.randomUUID());
+        item.setAuthorizationCode(authCodeValue);
+        item.setExpiryDate(fixedInstant.plus(1, ChronoUnit.DAYS).getEpochSecond());
+        item.setAuthorizationCodeExpiryDate(
+                fixedInstant.plus(10, ChronoUnit.MINUTES).getEpochSecond());
+        Stream<SessionItem> items = Stream.of(item);
+
+        when(mockConfigurationService.isAuthorizationCodeIndexProjectionAll()).thenReturn(true);
+        when(mockListUtil.getOneItemOrThrowError(items)).thenReturn(item);
+        when(mockDataStore.streamItemsByIndex(
+                        SessionItem.AUTHORIZATION_CODE_INDEX, authCodeValue, 2))
+                .thenReturn(items);
+
+        SessionItem sessionItem = sessionService.getSessionByAuthorisationCode(authCodeValue);
+
+        assertThat(sessionItem, equalTo(item));
+        verify(mockDataStore, never()).getItem(anyString());
+    }
+
+    @Test
+    void shouldRedeemAuthorizationCodeWithOneConditionalUpdate() {
+        UUID sessionId = UUID.randomUUID();
+        String authorizationCode = UUID.randomUUID().toString();
+        AccessToken accessToken = new BearerAccessToken();
+        SessionItem redeemedItem = new SessionItem();
+        redeemedItem.setSessionId(sessionId);
+        redeemedItem.setAccessToken(accessToken.toAuthorizationHeader());
+        ArgumentCaptor<Expression> updateExpressionCaptor =
+                ArgumentCaptor.forClass(Expression.class);
+        ArgumentCaptor<Expression> conditionExpressionCaptor =
+                ArgumentCaptor.forClass(Expression.class);
+
+        when(mockConfigurationService.getBearerAccessTokenExpirationEpoch()).thenReturn(3600L);
+        when(mockDataStore.update(
+                        eq(sessionId.toString()),
+                        updateExpressionCaptor.capture(),
+                        conditionExpressionCaptor.capture()))
+                .thenReturn(redeemedItem);
+
+        SessionItem sessionItem =
+                sessionService.redeemAuthorizationCode(sessionId, authorizationCode, accessToken);
+
+        assertThat(sessionItem, equalTo(redeemedItem));
+        Expression updateExpression = updateExpressionCaptor.getValue();
+        assertThat(
+                updateExpression.expressionValues().get(":accessToken").s(),
+                equalTo(accessToken.toAuthorizationHeader()));
+        assertThat(
+                updateExpression.expressionValues().get(":accessTokenExpiryDate").n(),
+                equalTo("3600"));
+        Expression conditionExpression = conditionExpressionCaptor.getValue();
+        assertThat(
+                conditionExpression.expressionValues().get(":authorizationCode").s(),
+                equalTo(authorizationCode));
+        assertThat(
+                conditionExpression.expressionValues().get(":now").n(),
+                equalTo(String.valueOf(fixedInstant.getEpochSecond())));
+    }
+
+    @Test
+    void shouldThrowWhenAuthorizationCodeCannotBeRedeemed() {
+        UUID sessionId = UUID.randomUUID();
+        when(mockDataStore.update(
+                        eq(sessionId.toString()), any(Expression.class), any(Expression.class)))
+                .thenReturn(null);
+
+        assertThrows(
+                AuthorizationCodeExpiredException.class,
+                () ->
+                        sessionService.redeemAuthorizationCode(
+                                sessionId, "used-code", new BearerAccessToken()));
+    }
+
     @Test
     void shouldThrowExceptionWhenSessionExpired() {
         SessionItem expiredSessionItem = new SessionItem();
@@ -156,10 +293,11 @@ class SessionServiceTest {
         item.setExpiryDate(Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond());
         item.setAuthorizationCodeExpiryDate(
                 Instant.now().minus(1, ChronoUnit.DAYS).getEpochSecond());
-        List<SessionItem> items = List.of(item);
+        Stream<SessionItem> items = Stream.of(item);
 
         when(mockListUtil.getOneItemOrThrowError(items)).thenReturn(item);
-        when(mockDataStore.getItemByIndex(SessionItem.AUTHORIZATION_CODE_INDEX, authorizationCode))
+        when(mockDataStore.streamItemsByIndex(
+                        SessionItem.AUTHORIZATION_CODE_INDEX, authorizationCode, 2))
                 .thenReturn(items);
         when(mockDataStore.getItem(item.getSessionId().toString())).thenReturn(item);
 
@@ -177,10 +315,11 @@ class SessionServiceTest {
         item.setAccessToken(serialisedAccessToken);
         item.setExpiryDate(Instant.now().plus(1, ChronoUnit.DAYS).getEpochSecond());
         item.setAccessTokenExpiryDate(Instant.now().minus(1, ChronoUnit.DAYS).getEpochSecond());
-        List<SessionItem> items = List.of(item);
+        Stream<SessionItem> items = Stream.of(item);
 
         when(mockListUtil.getOneItemOrThrowError(items)).thenReturn(item);
-        when(mockDataStore.getItemByIndex(SessionItem.ACCESS_TOKEN_INDEX, serialisedAccessToken))
+        when(mockDataStore.streamItemsByIndex(
+                        SessionItem.ACCESS_TOKEN_INDEX, serialisedAccessToken, 2))
                 .thenReturn(items);
         when(mockDataStore.getItem(item.getSessionId().toString())).thenReturn(item);
 
@@ -197,10 +336,171 @@ class SessionServiceTest {
         verify(mockDataStore).update(sessionItem);
     }
 
+    @Test
+    void shouldOnlyWriteChangedAttributesOfSessionsReadThroughTheService() {
+        SessionItem sessionItem = new SessionItem();
+        sessionItem.setClientId("ipv-core");
+        when(mockDataStore.getItem(SESSION_ID)).thenReturn(sessionItem);
+        when(mockConfigurationService.getAuthorizationCodeExpirationEpoch()).thenReturn(600L);
+        when(mockDataStore.update(
+                        sessionItem, Set.of("authorizationCode", "authorizationCodeExpiryDate")))
+                .thenReturn(true);
+
+        sessionService.createAuthorizationCode(sessionService.getSession(SESSION_ID));
+
+        verify(mockDataStore, never()).update(sessionItem);
+        assertThat(sessionItem.getChangedAttributeNames(), equalTo(Optional.of(Set.of())));
+    }
+
+    @Test
+    void shouldWriteWholeSessionWhenItNoLongerExists() {
+        SessionItem sessionItem = new SessionItem();
+        when(mockDataStore.getItem(SESSION_ID)).thenReturn(sessionItem);
+        when(mockDataStore.update(sessionItem, Set.of("clientId"))).thenReturn(false);
+
+        SessionItem session = sessionService.getSession(SESSION_ID);
+        session.setClientId("ipv-core");
+        sessionService.updateSession(session);
+
+        verify(mockDataStore).update(sessionItem);
+    }
+
+    @Test
+    void shouldOnlyWriteChangedAttributesOfSessionsUpdatedAsynchronously() throws Exception {
+        SessionItem sessionItem = new SessionItem();
+        when(mockDataStore.getItem(SESSION_ID)).thenReturn(sessionItem);
+        when(mockAsyncDataStore.update(sessionItem, Set.of("clientId")))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        SessionService asyncSessionService = createServiceWithAsyncDataStore();
+
+        SessionItem session = asyncSessionService.getSession(SESSION_ID);
+        session.setClientId("ipv-core");
+        SessionItem updatedItem = asyncSessionService.updateSessionAsync(session).get();
+
+        assertThat(updatedItem, equalTo(sessionItem));
+        verify(mockAsyncDataStore, never()).update(sessionItem);
+        assertThat(sessionItem.getChangedAttributeNames(), equalTo(Optional.of(Set.of())));
+    }
+
     @Test
     void shouldGetSessionItemBySessionId() {
         sessionService.getSession(SESSION_ID);
 
         verify(mockDataStore).getItem(SESSION_ID);
     }
+
+    @Test
+    void shouldValidateSessionIdAsynchronously() throws Exception {
+        SessionItem sessionItem = new SessionItem();
+        sessionItem.setExpiryDate(fixedInstant.plus(1, ChronoUnit.HOURS).getEpochSecond());
+        when(mockAsyncDataStore.getItem(SESSION_ID))
+                .thenReturn(CompletableFuture.completedFuture(sessionItem));
+
+        SessionItem validatedSessionItem =
+                createServiceWithAsyncDataStore().validateSessionIdAsync(SESSION_ID).get();
+
+        assertThat(validatedSessionItem, equalTo(sessionItem));
+    }
+
+    @Test
+    void shouldFailAsyncValidationWhenSessionExpired() {
+        SessionItem expiredSessionItem = new SessionItem();
+        expiredSessionItem.setExpiryDate(fixedInstant.minus(1, ChronoUnit.HOURS).getEpochSecond());
+        when(mockAsyncDataStore.getItem(SESSION_ID))
+                .thenReturn(CompletableFuture.completedFuture(expiredSessionItem));
+
+        CompletableFuture<SessionItem> validatedSessionItem =
+                createServiceWithAsyncDataStore().validateSessionIdAsync(SESSION_ID);
+
+        ExecutionException exception =
+                assertThrows(ExecutionException.class, validatedSessionItem::get);
+        assertThat(exception.getCause(), instanceOf(SessionExpiredException.class));
+    }
+
+    @Test
+    void shouldSaveSessionAsynchronously() throws Exception {
+        when(mockConfigurationService.getSessionExpirationEpoch()).thenReturn(10L);
+        when(mockAsyncDataStore.create(sessionItemArgumentCaptor.capture()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        SessionRequest sessionRequest = mock(SessionRequest.class);
+        when(sessionRequest.getClientId()).thenReturn("a client id");
+
+        UUID sessionId = createServiceWithAsyncDataStore().saveSessionAsync(sessionRequest).get();
+
+        assertThat(sessionItemArgumentCaptor.getValue().getSessionId(), equalTo(sessionId));
+        assertThat(sessionItemArgumentCaptor.getValue().getClientId(), equalTo("a client id"));
+    }
+
+    @Test
+    void shouldThrowWhenNoAsyncDataStoreIsConfigured() {
+        assertThrows(
+                IllegalStateException.class, () -> sessionService.getSessionAsync(SESSION_ID));
+    }
+
+    @Test
+    void shouldServeRepeatedSessionReadsFromCacheUntilTheSessionIsUpdated() {
+        Clock nowClock = Clock.fixed(fixedInstant, ZoneId.systemDefault());
+        SessionService cachingSessionService =
+                new SessionService(
+                        mockDataStore,
+                        null,
+                        mockConfigurationService,
+                        nowClock,
+                        mockListUtil,
+                        new SessionCache(10, Duration.ofSeconds(5), nowClock));
+        SessionItem sessionItem = new SessionItem();
+        sessionItem.setExpiryDate(fixedInstant.plus(1, ChronoUnit.HOURS).getEpochSecond());
+        String sessionId = sessionItem.getSessionId().toString();
+        when(mockDataStore.getItem(sessionId)).thenReturn(sessionItem);
+
+        cachingSessionService.validateSessionId(sessionId);
+        SessionItem cachedItem = cachingSessionService.getSession(sessionId);
+        cachingSessionService.updateSession(cachedItem);
+        cachingSessionService.validateSessionId(sessionId);
+
+        verify(mockDataStore, times(2)).getItem(sessionId);
+        assertThat(cachingSessionService.getSessionCacheHitCount(), equalTo(1L));
+        assertThat(cachingSessionService.getSessionCacheMissCount(), equalTo(2L));
+        assertThat(cachingSessionService.getSessionCacheReadsSavedCount(), equalTo(1L));
+    }
+
+    @Test
+    void shouldNotCacheSessionsReadFromAnAllProjectionIndex() {
+        Clock nowClock = Clock.fixed(fixedInstant, ZoneId.systemDefault());
+        SessionService cachingSessionService =
+                new SessionService(
+                        mockDataStore,
+                        null,
+                        mockConfigurationService,
+                        nowClock,
+                        mockListUtil,
+                        new SessionCache(10, Duration.ofSeconds(5), nowClock));
+        String authCodeValue = UUID.randomUUID().toString();
+        SessionItem item = new SessionItem();
+        item.setAuthorizationCode(authCodeValue);
+        item.setExpiryDate(fixedInstant.plus(1, ChronoUnit.DAYS).getEpochSecond());
+        item.setAuthorizationCodeExpiryDate(
+                fixedInstant.plus(10, ChronoUnit.MINUTES).getEpochSecond());
+        when(mockConfigurationService.isAuthorizationCodeIndexProjectionAll()).thenReturn(true);
+        when(mockListUtil.getOneItemOrThrowError(any())).thenReturn(item);
+        when(mockDataStore.streamItemsByIndex(
+                        SessionItem.AUTHORIZATION_CODE_INDEX, authCodeValue, 2))
+                .thenAnswer(invocation -> Stream.of(item));
+
+        cachingSessionService.getSessionByAuthorisationCode(authCodeValue);
+        cachingSessionService.getSessionByAuthorisationCode(authCodeValue);
+
+        verify(mockDataStore, times(2))
+                .streamItemsByIndex(SessionItem.AUTHORIZATION_CODE_INDEX, authCodeValue, 2);
+        assertThat(cachingSessionService.getSessionCacheHitCount(), equalTo(0L));
+    }
+
+    private SessionService createServiceWithAsyncDataStore() {
+        return new SessionService(
+                mockDataStore,
+                mockAsyncDataStore,
+                mockConfigurationService,
+                Clock.fixed(fixedInstant, ZoneId.systemDefault()),
+                mockListUtil);
+    }
 }
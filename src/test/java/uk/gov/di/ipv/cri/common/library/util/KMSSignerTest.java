@@ -14,26 +14,39 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.kms.KmsAsyncClient;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.kms.model.MessageType;
 import software.amazon.awssdk.services.kms.model.SignRequest;
 import software.amazon.awssdk.services.kms.model.SignResponse;
 import software.amazon.awssdk.services.kms.model.SigningAlgorithmSpec;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -132,4 +145,191 @@ class KMSSignerTest {
                 is(true));
         assertThat(signatureString.endsWith("="), is(false));
     }
+
+    @Test
+    void shouldSignAsynchronouslyUsingKmsAsyncClient() throws Exception {
+        KmsAsyncClient mockKmsAsyncClient = mock(KmsAsyncClient.class);
+        kmsSigner = new KMSSigner(kid, mockKmsClient, mockKmsAsyncClient);
+        JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.ES256).build();
+        byte[] signatureBytes = new byte[] {1, 2, 3};
+        ArgumentCaptor<SignRequest> signRequestArgumentCaptor =
+                ArgumentCaptor.forClass(SignRequest.class);
+        when(mockKmsAsyncClient.sign(signRequestArgumentCaptor.capture()))
+                .thenReturn(
+                        CompletableFuture.completedFuture(
+                                SignResponse.builder()
+                                        .signature(SdkBytes.fromByteArray(signatureBytes))
+                                        .build()));
+
+        Base64URL signature = kmsSigner.signAsync(jwsHeader, new byte[0]).get();
+
+        assertEquals(Base64URL.encode(signatureBytes), signature);
+        assertThat(signRequestArgumentCaptor.getValue().keyId(), equalTo(kid));
+        assertThat(
+                signRequestArgumentCaptor.getValue().messageTypeAsString(),
+                equalTo(MessageType.DIGEST.toString()));
+    }
+
+    @Test
+    void shouldSendTheSameDigestForRepeatedSigningInputs() throws Exception {
+        JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.ES256).build();
+        byte[] signingInput = "header.payload".getBytes(StandardCharsets.US_ASCII);
+        ArgumentCaptor<SignRequest> signRequestArgumentCaptor =
+                ArgumentCaptor.forClass(SignRequest.class);
+        when(mockKmsClient.sign(signRequestArgumentCaptor.capture()))
+                .thenReturn(createSignResponse(new byte[] {1}));
+
+        kmsSigner.sign(jwsHeader, signingInput);
+        kmsSigner.sign(jwsHeader, signingInput);
+
+        verify(mockKmsClient, times(2)).sign(any(SignRequest.class));
+        byte[] expectedDigest = MessageDigest.getInstance("SHA-256").digest(signingInput);
+        for (SignRequest signRequest : signRequestArgumentCaptor.getAllValues()) {
+            assertThat(signRequest.message().asByteArray(), equalTo(expectedDigest));
+        }
+    }
+
+    @Test
+    void shouldDigestAndConsumeByteBufferSigningInput() throws Exception {
+        JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.ES256).build();
+        byte[] signingInput = "header.payload".getBytes(StandardCharsets.US_ASCII);
+        ArgumentCaptor<SignRequest> signRequestArgumentCaptor =
+                ArgumentCaptor.forClass(SignRequest.class);
+        when(mockKmsClient.sign(signRequestArgumentCaptor.capture()))
+                .thenReturn(createSignResponse(new byte[] {1}));
+        ByteBuffer signingInputBuffer = ByteBuffer.wrap(signingInput);
+
+        Base64URL signature = kmsSigner.signDigestInput(jwsHeader, signingInputBuffer);
+
+        assertThat(signature, equalTo(Base64URL.encode(new byte[] {1})));
+        assertThat(
+                signRequestArgumentCaptor.getValue().message().asByteArray(),
+                equalTo(MessageDigest.getInstance("SHA-256").digest(signingInput)));
+        assertThat(signingInputBuffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    void shouldApplyDeadlineAsApiCallTimeout() throws JOSEException {
+        KMSSigningPolicy signingPolicy =
+                new KMSSigningPolicy(Duration.ofMillis(200), 0, Duration.ZERO);
+        kmsSigner = new KMSSigner(kid, mockKmsClient, null, signingPolicy);
+        ArgumentCaptor<SignRequest> signRequestArgumentCaptor =
+                ArgumentCaptor.forClass(SignRequest.class);
+        when(mockKmsClient.sign(signRequestArgumentCaptor.capture()))
+                .thenReturn(createSignResponse(new byte[] {1}));
+
+        kmsSigner.sign(new JWSHeader.Builder(JWSAlgorithm.ES256).build(), new byte[0]);
+
+        assertThat(
+                signRequestArgumentCaptor
+                        .getValue()
+                        .overrideConfiguration()
+                        .flatMap(config -> config.apiCallTimeout())
+                        .orElseThrow(),
+                equalTo(Duration.ofMillis(200)));
+        assertThat(kmsSigner.getSignLatencyHistogram().getCount(), equalTo(1L));
+    }
+
+    @Test
+    void shouldFailAsyncSignWhenDeadlineIsExceeded() {
+        KmsAsyncClient mockKmsAsyncClient = mock(KmsAsyncClient.class);
+        KMSSigningPolicy signingPolicy =
+                new KMSSigningPolicy(Duration.ofMillis(50), 0, Duration.ZERO);
+        kmsSigner = new KMSSigner(kid, mockKmsClient, mockKmsAsyncClient, signingPolicy);
+        CompletableFuture<SignResponse> pendingResponse = new CompletableFuture<>();
+        when(mockKmsAsyncClient.sign(any(SignRequest.class))).thenReturn(pendingResponse);
+
+        var exception =
+                assertThrows(
+                        ExecutionException.class,
+                        () ->
+                                kmsSigner
+                                        .signAsync(
+                                                new JWSHeader.Builder(JWSAlgorithm.ES256).build(),
+                                                new byte[0])
+                                        .get(5, TimeUnit.SECONDS));
+
+        assertThat(exception.getCause(), instanceOf(TimeoutException.class));
+        assertThat(kmsSigner.getDeadlineExceededCount(), equalTo(1L));
+        assertThat(pendingResponse.isCancelled(), is(true));
+    }
+
+    @Test
+    void shouldReturnHedgedSignatureWhenPrimaryRequestIsSlow() throws Exception {
+        KmsAsyncClient mockKmsAsyncClient = mock(KmsAsyncClient.class);
+        KMSSigningPolicy signingPolicy =
+                new KMSSigningPolicy(Duration.ofSeconds(5), 95, Duration.ofMillis(1));
+        kmsSigner = new KMSSigner(kid, mockKmsClient, mockKmsAsyncClient, signingPolicy);
+        JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.ES256).build();
+        byte[] hedgedSignature = new byte[] {2};
+        CompletableFuture<SignResponse> slowResponse = new CompletableFuture<>();
+        when(mockKmsAsyncClient.sign(any(SignRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(createSignResponse(new byte[] {1})));
+        for (int i = 0; i < KMSSigningPolicy.MINIMUM_HEDGE_SAMPLES; i++) {
+            kmsSigner.signAsync(jwsHeader, new byte[0]).get();
+        }
+        when(mockKmsAsyncClient.sign(any(SignRequest.class)))
+                .thenReturn(
+                        slowResponse,
+                        CompletableFuture.completedFuture(createSignResponse(hedgedSignature)));
+
+        Base64URL signature = kmsSigner.signAsync(jwsHeader, new byte[0]).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Base64URL.encode(hedgedSignature), signature);
+        assertThat(kmsSigner.getHedgedRequestCount(), equalTo(1L));
+        assertThat(kmsSigner.getHedgeWinCount(), equalTo(1L));
+        assertThat(slowResponse.isCancelled(), is(true));
+    }
+
+    @Test
+    void shouldHedgeSynchronousSignsUsingKmsClient() throws Exception {
+        KMSSigningPolicy signingPolicy =
+                new KMSSigningPolicy(Duration.ofSeconds(5), 95, Duration.ofMillis(1));
+        kmsSigner = new KMSSigner(kid, mockKmsClient, null, signingPolicy);
+        JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.ES256).build();
+        byte[] hedgedSignature = new byte[] {2};
+        CountDownLatch slowResponseReleased = new CountDownLatch(1);
+        when(mockKmsClient.sign(any(SignRequest.class)))
+                .thenReturn(createSignResponse(new byte[] {1}));
+        for (int i = 0; i < KMSSigningPolicy.MINIMUM_HEDGE_SAMPLES; i++) {
+            kmsSigner.sign(jwsHeader, new byte[0]);
+        }
+        when(mockKmsClient.sign(any(SignRequest.class)))
+                .thenAnswer(
+                        invocation -> {
+                            slowResponseReleased.await(5, TimeUnit.SECONDS);
+                            return createSignResponse(new byte[] {1});
+                        })
+                .thenReturn(createSignResponse(hedgedSignature));
+
+        try {
+            Base64URL signature = kmsSigner.sign(jwsHeader, new byte[0]);
+
+            assertEquals(Base64URL.encode(hedgedSignature), signature);
+            assertThat(kmsSigner.getHedgedRequestCount(), equalTo(1L));
+            assertThat(kmsSigner.getHedgeWinCount(), equalTo(1L));
+        } finally {
+            slowResponseReleased.countDown();
+        }
+    }
+
+    @Test
+    void shouldCountSynchronousSignTimeoutsAsDeadlineExceeded() {
+        KMSSigningPolicy signingPolicy =
+                new KMSSigningPolicy(Duration.ofMillis(200), 0, Duration.ZERO);
+        kmsSigner = new KMSSigner(kid, mockKmsClient, null, signingPolicy);
+        when(mockKmsClient.sign(any(SignRequest.class)))
+                .thenThrow(ApiCallTimeoutException.builder().message("timed out").build());
+
+        assertThrows(
+                ApiCallTimeoutException.class,
+                () ->
+                        kmsSigner.sign(
+                                new JWSHeader.Builder(JWSAlgorithm.ES256).build(), new byte[0]));
+        assertThat(kmsSigner.getDeadlineExceededCount(), equalTo(1L));
+    }
+
+    private static SignResponse createSignResponse(byte[] signature) {
+        return SignResponse.builder().signature(SdkBytes.fromByteArray(signature)).build();
+    }
 }
@@ -0,0 +1,47 @@
+package uk.gov.di.ipv.cri.common.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LatencyHistogramTest {
+
+    @Test
+    void shouldReturnZeroPercentileWhenNothingRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getCount(), equalTo(0L));
+        assertThat(histogram.getPercentile(99), equalTo(Duration.ZERO));
+    }
+
+    @Test
+    void shouldEstimatePercentilesWithinBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(Duration.ofMillis(i));
+        }
+
+        assertThat(histogram.getCount(), equalTo(100L));
+        assertPercentileWithinBucket(histogram.getPercentile(50), Duration.ofMillis(50));
+        assertPercentileWithinBucket(histogram.getPercentile(99), Duration.ofMillis(99));
+    }
+
+    @Test
+    void shouldRejectInvalidPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(101));
+    }
+
+    private static void assertPercentileWithinBucket(Duration estimate, Duration expected) {
+        assertThat(estimate, greaterThanOrEqualTo(expected));
+        assertThat(estimate, lessThanOrEqualTo(expected.multipliedBy(5).dividedBy(4)));
+    }
+}
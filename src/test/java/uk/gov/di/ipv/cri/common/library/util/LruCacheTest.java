@@ -0,0 +1,50 @@
+package uk.gov.di.ipv.cri.common.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LruCacheTest {
+
+    @Test
+    void shouldReturnCachedValue() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("key", "value");
+
+        assertEquals("value", cache.get("key"));
+        assertNull(cache.get("other-key"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntryWhenFull() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("first", "1");
+        cache.put("second", "2");
+        cache.get("first");
+        cache.put("third", "3");
+
+        assertEquals("1", cache.get("first"));
+        assertNull(cache.get("second"));
+        assertEquals("3", cache.get("third"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void shouldRemoveInvalidatedEntry() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("key", "value");
+        cache.invalidate("key");
+
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    void shouldRejectNonPositiveMaximumSize() {
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<String, String>(0));
+    }
+}
@@ -1,15 +1,23 @@
 package uk.gov.di.ipv.cri.common.library.util;
 
 import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.crypto.ECDSASigner;
 import com.nimbusds.jose.crypto.ECDSAVerifier;
 import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.ECPrivateKey;
@@ -17,9 +25,21 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.text.ParseException;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class SignedJWTFactoryTest {
@@ -27,6 +47,7 @@ class SignedJWTFactoryTest {
             "MIGHAgEAMBMGByqGSM49AgEGCCqGSM49AwEHBG0wawIBAQQgOXt0P05ZsQcK7eYusgIPsqZdaBCIJiW4imwUtnaAthWhRANCAAQT1nO46ipxVTilUH2umZPN7OPI49GU6Y8YkcqLxFKUgypUzGbYR2VJGM+QJXk0PI339EyYkt6tjgfS+RcOMQNO";
     private static final String EC_PUBLIC_JWK_1 =
             "{\"kty\":\"EC\",\"crv\":\"P-256\",\"x\":\"E9ZzuOoqcVU4pVB9rpmTzezjyOPRlOmPGJHKi8RSlIM\",\"y\":\"KlTMZthHZUkYz5AleTQ8jff0TJiS3q2OB9L5Fw4xA04\"}";
+    @Mock private KMSSigner mockKmsSigner;
     private SignedJWTFactory signedJwtFactory;
 
     @Test
@@ -41,6 +62,178 @@ class SignedJWTFactoryTest {
         assertThat(signedJWT.verify(new ECDSAVerifier(ECKey.parse(EC_PUBLIC_JWK_1))), is(true));
     }
 
+    @Test
+    void shouldCreateASignedJwtAsynchronouslyWithNonKmsSigner() throws Exception {
+        JWTClaimsSet testClaimsSet = new JWTClaimsSet.Builder().subject("subject").build();
+        signedJwtFactory = new SignedJWTFactory(new ECDSASigner(getPrivateKey()));
+
+        SignedJWT signedJWT = signedJwtFactory.createSignedJwtAsync(testClaimsSet).get();
+
+        assertThat(signedJWT.verify(new ECDSAVerifier(ECKey.parse(EC_PUBLIC_JWK_1))), is(true));
+    }
+
+    @Test
+    void shouldCreateASignedJwtAsynchronouslyWithKmsSigner() throws Exception {
+        JWTClaimsSet testClaimsSet = new JWTClaimsSet.Builder().subject("subject").build();
+        Base64URL kmsSignature = Base64URL.encode(new byte[] {1, 2, 3});
+        when(mockKmsSigner.signAsync(any(JWSHeader.class), any(byte[].class)))
+                .thenReturn(CompletableFuture.completedFuture(kmsSignature));
+        signedJwtFactory = new SignedJWTFactory(mockKmsSigner);
+
+        SignedJWT signedJWT = signedJwtFactory.createSignedJwtAsync(testClaimsSet).get();
+
+        assertThat(signedJWT.getSignature(), equalTo(kmsSignature));
+        assertThat(signedJWT.getHeader().getAlgorithm(), equalTo(JWSAlgorithm.ES256));
+        assertThat(signedJWT.getJWTClaimsSet().getSubject(), equalTo("subject"));
+    }
+
+    @Test
+    void shouldSignTheEncodedHeaderAndClaims() throws Exception {
+        JWTClaimsSet testClaimsSet = new JWTClaimsSet.Builder().subject("subject").build();
+        ArgumentCaptor<byte[]> signingInputCaptor = ArgumentCaptor.forClass(byte[].class);
+        Base64URL kmsSignature = Base64URL.encode(new byte[] {1, 2, 3});
+        when(mockKmsSigner.sign(any(JWSHeader.class), signingInputCaptor.capture()))
+                .thenReturn(kmsSignature);
+        signedJwtFactory = new SignedJWTFactory(mockKmsSigner);
+
+        SignedJWT signedJWT = signedJwtFactory.createSignedJwt(testClaimsSet);
+
+        JWSHeader expectedHeader =
+                new JWSHeader.Builder(JWSAlgorithm.ES256).type(JOSEObjectType.JWT).build();
+        assertThat(
+                new String(signingInputCaptor.getValue(), StandardCharsets.US_ASCII),
+                equalTo(
+                        expectedHeader.toBase64URL()
+                                + "."
+                                + Base64URL.encode(testClaimsSet.toString())));
+        assertThat(signedJWT.getHeader().toJSONObject(), equalTo(expectedHeader.toJSONObject()));
+        assertThat(signedJWT.getJWTClaimsSet().getSubject(), equalTo("subject"));
+        assertThat(signedJWT.getSignature(), equalTo(kmsSignature));
+        assertThat(
+                signedJWT.serialize(),
+                equalTo(
+                        new String(signingInputCaptor.getValue(), StandardCharsets.US_ASCII)
+                                + "."
+                                + kmsSignature));
+    }
+
+    @Test
+    void shouldShareOneParsedHeaderBetweenJwts() throws Exception {
+        signedJwtFactory = new SignedJWTFactory(new ECDSASigner(getPrivateKey()));
+
+        SignedJWT firstJwt = signedJwtFactory.createSignedJwt(new JWTClaimsSet.Builder().build());
+        SignedJWT secondJwt = signedJwtFactory.createSignedJwt(new JWTClaimsSet.Builder().build());
+
+        assertThat(firstJwt.getHeader(), sameInstance(secondJwt.getHeader()));
+        assertThat(firstJwt.getHeader().getParsedBase64URL(), notNullValue());
+    }
+
+    @Test
+    void shouldCreateSignedJwtsInInputOrder() throws Exception {
+        List<JWTClaimsSet> claimsSets =
+                List.of(
+                        new JWTClaimsSet.Builder().subject("first").build(),
+                        new JWTClaimsSet.Builder().subject("second").build(),
+                        new JWTClaimsSet.Builder().subject("third").build());
+        signedJwtFactory = new SignedJWTFactory(new ECDSASigner(getPrivateKey()));
+
+        List<SignedJWTResult> results = signedJwtFactory.createSignedJwts(claimsSets);
+
+        assertThat(results.size(), equalTo(3));
+        ECDSAVerifier verifier = new ECDSAVerifier(ECKey.parse(EC_PUBLIC_JWK_1));
+        for (int i = 0; i < claimsSets.size(); i++) {
+            SignedJWTResult result = results.get(i);
+            assertThat(result.isSuccess(), is(true));
+            assertThat(result.getSignedJwt().verify(verifier), is(true));
+            assertThat(
+                    result.getSignedJwt().getJWTClaimsSet().getSubject(),
+                    equalTo(claimsSets.get(i).getSubject()));
+        }
+    }
+
+    @Test
+    void shouldReportPerItemFailuresWhenBatchSigningWithKmsSigner() throws Exception {
+        Base64URL kmsSignature = Base64URL.encode(new byte[] {1, 2, 3});
+        JOSEException signingFailure = new JOSEException("KMS unavailable");
+        when(mockKmsSigner.signAsync(any(JWSHeader.class), any(byte[].class)))
+                .thenReturn(
+                        CompletableFuture.completedFuture(kmsSignature),
+                        CompletableFuture.failedFuture(signingFailure),
+                        CompletableFuture.completedFuture(kmsSignature));
+        signedJwtFactory = new SignedJWTFactory(mockKmsSigner, 2);
+
+        List<SignedJWTResult> results =
+                signedJwtFactory.createSignedJwts(
+                        List.of(
+                                new JWTClaimsSet.Builder().subject("first").build(),
+                                new JWTClaimsSet.Builder().subject("second").build(),
+                                new JWTClaimsSet.Builder().subject("third").build()));
+
+        assertThat(results.get(0).isSuccess(), is(true));
+        assertThat(results.get(0).getSignedJwt().getJWTClaimsSet().getSubject(), is("first"));
+        assertThat(results.get(1).isSuccess(), is(false));
+        assertThat(results.get(1).getError(), sameInstance(signingFailure));
+        assertThat(results.get(2).isSuccess(), is(true));
+        assertThat(results.get(2).getSignedJwt().getJWTClaimsSet().getSubject(), is("third"));
+    }
+
+    @Test
+    void shouldOverlapBatchSignsWithNonKmsSigner() throws Exception {
+        ECDSASigner ecdsaSigner = new ECDSASigner(getPrivateKey());
+        CountDownLatch signsStarted = new CountDownLatch(2);
+        JWSSigner slowSigner = mock(JWSSigner.class);
+        when(slowSigner.sign(any(JWSHeader.class), any(byte[].class)))
+                .thenAnswer(
+                        invocation -> {
+                            signsStarted.countDown();
+                            // Only returns once the other sign is in flight as well
+                            assertThat(signsStarted.await(5, TimeUnit.SECONDS), is(true));
+                            return ecdsaSigner.sign(
+                                    invocation.getArgument(0), invocation.getArgument(1));
+                        });
+        signedJwtFactory = new SignedJWTFactory(slowSigner, 2);
+
+        List<SignedJWTResult> results =
+                signedJwtFactory.createSignedJwts(
+                        List.of(
+                                new JWTClaimsSet.Builder().subject("first").build(),
+                                new JWTClaimsSet.Builder().subject("second").build()));
+
+        ECDSAVerifier verifier = new ECDSAVerifier(ECKey.parse(EC_PUBLIC_JWK_1));
+        assertThat(results.get(0).getSignedJwt().verify(verifier), is(true));
+        assertThat(results.get(1).getSignedJwt().verify(verifier), is(true));
+    }
+
+    @Test
+    void shouldSignNonKmsSignerBatchesOnTheGivenExecutor() throws Exception {
+        ECDSASigner ecdsaSigner = new ECDSASigner(getPrivateKey());
+        AtomicInteger executedSigns = new AtomicInteger();
+        Executor countingExecutor =
+                runnable -> {
+                    executedSigns.incrementAndGet();
+                    runnable.run();
+                };
+        signedJwtFactory = new SignedJWTFactory(ecdsaSigner, 2, countingExecutor);
+
+        List<SignedJWTResult> results =
+                signedJwtFactory.createSignedJwts(
+                        List.of(
+                                new JWTClaimsSet.Builder().subject("first").build(),
+                                new JWTClaimsSet.Builder().subject("second").build()));
+
+        assertThat(executedSigns.get(), equalTo(2));
+        ECDSAVerifier verifier = new ECDSAVerifier(ECKey.parse(EC_PUBLIC_JWK_1));
+        assertThat(results.get(0).getSignedJwt().verify(verifier), is(true));
+        assertThat(results.get(1).getSignedJwt().verify(verifier), is(true));
+    }
+
+    @Test
+    void shouldReturnNoResultsForAnEmptyBatch() {
+        signedJwtFactory = new SignedJWTFactory(mockKmsSigner);
+
+        assertThat(signedJwtFactory.createSignedJwts(List.of()).isEmpty(), is(true));
+    }
+
     private ECPrivateKey getPrivateKey() throws InvalidKeySpecException, NoSuchAlgorithmException {
         return (ECPrivateKey)
                 KeyFactory.getInstance("EC")
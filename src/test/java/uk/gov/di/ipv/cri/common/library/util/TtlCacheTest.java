@@ -0,0 +1,288 @@
+package uk.gov.di.ipv.cri.common.library.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TtlCacheTest {
+    private static final Instant NOW = Instant.ofEpochSecond(1655203417);
+    @Mock private Clock mockClock;
+    private AtomicInteger loadCount;
+    private Function<String, String> loader;
+
+    @BeforeEach
+    void setUp() {
+        loadCount = new AtomicInteger();
+        loader = key -> key + "-value-" + loadCount.incrementAndGet();
+    }
+
+    @Test
+    void shouldServeCachedValueWithinTtl() {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofSeconds(60), mockClock);
+        when(mockClock.instant()).thenReturn(NOW, NOW.plusSeconds(59));
+
+        assertEquals("key-value-1", cache.get("key", loader));
+        assertEquals("key-value-1", cache.get("key", loader));
+
+        assertEquals(1, loadCount.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getRefreshCount());
+    }
+
+    @Test
+    void shouldReloadValueOnceTtlHasElapsed() {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofSeconds(60), mockClock);
+        when(mockClock.instant()).thenReturn(NOW, NOW.plusSeconds(60));
+
+        assertEquals("key-value-1", cache.get("key", loader));
+        assertEquals("key-value-2", cache.get("key", loader));
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getRefreshCount());
+    }
+
+    @Test
+    void shouldApplyTtlPerKey() {
+        TtlCache<String, String> cache =
+                new TtlCache<>(
+                        key -> "short".equals(key) ? Duration.ofSeconds(1) : Duration.ofHours(1),
+                        mockClock);
+        when(mockClock.instant()).thenReturn(NOW, NOW, NOW.plusSeconds(5), NOW.plusSeconds(5));
+
+        cache.get("short", loader);
+        cache.get("long", loader);
+        cache.get("short", loader);
+        cache.get("long", loader);
+
+        assertEquals(3, loadCount.get());
+        assertEquals(1, cache.getRefreshCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void shouldBypassCacheWhenTtlIsZero() {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ZERO, mockClock);
+
+        assertEquals("key-value-1", cache.get("key", loader));
+        assertEquals("key-value-2", cache.get("key", loader));
+
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.size());
+        verifyNoInteractions(mockClock);
+    }
+
+    @Test
+    void shouldNotCacheNullValues() {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofSeconds(60), mockClock);
+        when(mockClock.instant()).thenReturn(NOW);
+
+        assertNull(cache.get("key", key -> null));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofSeconds(60), mockClock);
+        when(mockClock.instant()).thenReturn(NOW);
+
+        cache.get("key", loader);
+        cache.invalidate("key");
+
+        assertEquals("key-value-2", cache.get("key", loader));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void shouldServeCurrentValueAndRefreshInBackgroundWhenCloseToExpiry() {
+        TtlCache<String, String> cache = createRefreshAheadCache();
+        when(mockClock.instant())
+                .thenReturn(NOW, NOW.plusSeconds(50), NOW.plusSeconds(50), NOW.plusSeconds(55));
+
+        assertEquals("key-value-1", cache.get("key", loader));
+        assertEquals("key-value-1", cache.get("key", loader));
+        assertEquals("key-value-2", cache.get("key", loader));
+
+        assertEquals(2, loadCount.get());
+        assertEquals(1, cache.getRefreshCount());
+        assertEquals(0, cache.getStaleHitCount());
+    }
+
+    @Test
+    void shouldServeStaleValueWithinStalenessCeiling() {
+        TtlCache<String, String> cache = createRefreshAheadCache();
+        when(mockClock.instant())
+                .thenReturn(NOW, NOW.plusSeconds(70), NOW.plusSeconds(70), NOW.plusSeconds(75));
+
+        assertEquals("key-value-1", cache.get("key", loader));
+        assertEquals("key-value-1", cache.get("key", loader));
+        assertEquals("key-value-2", cache.get("key", loader));
+
+        assertEquals(1, cache.getStaleHitCount());
+        assertEquals(1, cache.getRefreshCount());
+    }
+
+    @Test
+    void shouldBlockOnLoadOnceStalenessCeilingIsPassed() {
+        TtlCache<String, String> cache = createRefreshAheadCache();
+        when(mockClock.instant()).thenReturn(NOW, NOW.plusSeconds(90));
+
+        assertEquals("key-value-1", cache.get("key", loader));
+        assertEquals("key-value-2", cache.get("key", loader));
+
+        assertEquals(0, cache.getStaleHitCount());
+        assertEquals(1, cache.getRefreshCount());
+    }
+
+    @Test
+    void shouldKeepServingCurrentValueWhenBackgroundRefreshFails() {
+        TtlCache<String, String> cache = createRefreshAheadCache();
+        when(mockClock.instant()).thenReturn(NOW, NOW.plusSeconds(50));
+        cache.get("key", loader);
+
+        assertEquals(
+                "key-value-1",
+                cache.get(
+                        "key",
+                        key -> {
+                            throw new IllegalStateException("ssm unavailable");
+                        }));
+        assertEquals(1, cache.getRefreshFailureCount());
+    }
+
+    @Test
+    void shouldShareOneLoadBetweenConcurrentCallersWithoutBlockingOtherKeys() throws Exception {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofSeconds(60), mockClock);
+        when(mockClock.instant()).thenReturn(NOW);
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        Function<String, String> slowLoader =
+                key -> {
+                    loadStarted.countDown();
+                    try {
+                        releaseLoad.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return loader.apply(key);
+                };
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> firstCall = callers.submit(() -> cache.get("slow", slowLoader));
+            loadStarted.await();
+            Future<String> secondCall = callers.submit(() -> cache.get("slow", slowLoader));
+
+            assertEquals("other-value-1", cache.get("other", loader));
+
+            releaseLoad.countDown();
+            assertEquals("slow-value-2", firstCall.get(5, TimeUnit.SECONDS));
+            assertEquals("slow-value-2", secondCall.get(5, TimeUnit.SECONDS));
+            assertEquals(2, loadCount.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldCountCallersWaitingOnAnotherCallersLoadAsMisses() throws Exception {
+        TtlCache<String, String> cache = new TtlCache<>(Duration.ofSeconds(60), mockClock);
+        when(mockClock.instant()).thenReturn(NOW);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        Function<String, String> slowLoader =
+                key -> {
+                    try {
+                        releaseLoad.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return loader.apply(key);
+                };
+        Thread firstCaller = new Thread(() -> cache.get("slow", slowLoader));
+        Thread waitingCaller = new Thread(() -> cache.get("slow", slowLoader));
+
+        firstCaller.start();
+        awaitWaiting(firstCaller);
+        waitingCaller.start();
+        awaitWaiting(waitingCaller);
+        releaseLoad.countDown();
+        firstCaller.join(5000);
+        waitingCaller.join(5000);
+
+        assertEquals(1, loadCount.get());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void shouldNotCacheBackgroundRefreshThatCompletesAfterInvalidation() {
+        List<Runnable> scheduledRefreshes = new ArrayList<>();
+        TtlCache<String, String> cache =
+                new TtlCache<>(
+                        key -> Duration.ofSeconds(60),
+                        mockClock,
+                        Duration.ofSeconds(15),
+                        Duration.ofSeconds(20),
+                        scheduledRefreshes::add);
+        when(mockClock.instant()).thenReturn(NOW, NOW.plusSeconds(50));
+        cache.get("key", loader);
+        cache.get("key", loader);
+
+        cache.invalidate("key");
+        scheduledRefreshes.forEach(Runnable::run);
+
+        assertEquals("key-value-3", cache.get("key", loader));
+        assertEquals(3, loadCount.get());
+    }
+
+    @Test
+    void shouldRequireExecutorWhenRefreshAheadIsEnabled() {
+        Duration ttl = Duration.ofSeconds(60);
+        Duration refreshAhead = Duration.ofSeconds(15);
+        assertThrows(
+                NullPointerException.class,
+                () -> new TtlCache<String, String>(key -> ttl, mockClock, refreshAhead, ttl, null));
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(thread.getName() + " did not start waiting");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private TtlCache<String, String> createRefreshAheadCache() {
+        return new TtlCache<>(
+                key -> Duration.ofSeconds(60),
+                mockClock,
+                Duration.ofSeconds(15),
+                Duration.ofSeconds(20),
+                Runnable::run);
+    }
+}